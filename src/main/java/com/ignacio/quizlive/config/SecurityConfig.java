@@ -16,7 +16,7 @@ public class SecurityConfig {
         http
                 .userDetailsService(userDetailsService)
                 .authorizeHttpRequests(auth -> auth
-                        .requestMatchers("/", "/login", "/register", "/join", "/play/**").permitAll()
+                        .requestMatchers("/", "/login", "/register", "/join", "/play/**", "/watch/**").permitAll()
                         .requestMatchers("/css/**", "/js/**", "/images/**").permitAll()
                         .requestMatchers("/blocks/**", "/rooms/**").hasRole("HOST")
                         .anyRequest().authenticated()
@@ -0,0 +1,25 @@
+package com.ignacio.quizlive.config;
+
+import com.ignacio.quizlive.controller.HostSocketHandler;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+@Configuration
+@EnableWebSocket
+public class WebSocketConfig implements WebSocketConfigurer {
+
+    private final HostSocketHandler hostSocketHandler;
+
+    public WebSocketConfig(HostSocketHandler hostSocketHandler) {
+        this.hostSocketHandler = hostSocketHandler;
+    }
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        // /rooms/** ya exige rol HOST en SecurityConfig; el handler comprueba que la sala es suya
+        registry.addHandler(hostSocketHandler, "/rooms/*/ws")
+                .addInterceptors(hostSocketHandler);
+    }
+}
@@ -0,0 +1,76 @@
+package com.ignacio.quizlive.controller;
+
+import com.ignacio.quizlive.model.Room;
+import com.ignacio.quizlive.model.RoomState;
+import com.ignacio.quizlive.service.CurrentUserService;
+import com.ignacio.quizlive.service.HostSocketHub;
+import com.ignacio.quizlive.service.RoomService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.BinaryWebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+
+import java.util.Map;
+
+// WebSocket del anfitrion en /rooms/{id}/ws: solo el dueño de la sala puede conectarse
+// y el servidor solo envia (tramas de HostFrames); lo que mande el cliente se ignora
+@Component
+public class HostSocketHandler extends BinaryWebSocketHandler implements HandshakeInterceptor {
+
+    private static final String PIN = "pin";
+
+    private final RoomService roomService;
+    private final CurrentUserService currentUserService;
+    private final HostSocketHub hostSocketHub;
+
+    public HostSocketHandler(RoomService roomService, CurrentUserService currentUserService, HostSocketHub hostSocketHub) {
+        this.roomService = roomService;
+        this.currentUserService = currentUserService;
+        this.hostSocketHub = hostSocketHub;
+    }
+
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                   WebSocketHandler wsHandler, Map<String, Object> attributes) {
+        try {
+            // /rooms/{id}/ws
+            String[] parts = request.getURI().getPath().split("/");
+            Long id = Long.valueOf(parts[parts.length - 2]);
+            Room room = roomService.getMyRoomStatusById(currentUserService.getCurrentUser(), id);
+            if (room.getState() == RoomState.FINISHED) {
+                response.setStatusCode(HttpStatus.GONE);
+                return false;
+            }
+            attributes.put(PIN, room.getPin());
+            return true;
+        } catch (RuntimeException ex) {
+            response.setStatusCode(HttpStatus.FORBIDDEN);
+            return false;
+        }
+    }
+
+    @Override
+    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                               WebSocketHandler wsHandler, Exception exception) {
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        hostSocketHub.register((String) session.getAttributes().get(PIN), session);
+    }
+
+    @Override
+    protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) {
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        hostSocketHub.unregister((String) session.getAttributes().get(PIN), session);
+    }
+}
@@ -4,14 +4,20 @@ import com.ignacio.quizlive.model.Answer;
 import com.ignacio.quizlive.model.Player;
 import com.ignacio.quizlive.model.Room;
 import com.ignacio.quizlive.model.RoomPhase;
-import com.ignacio.quizlive.model.RoomQuestion;
 import com.ignacio.quizlive.model.RoomState;
 import com.ignacio.quizlive.service.GameService;
+import com.ignacio.quizlive.service.QuestionSnapshot;
+import com.ignacio.quizlive.service.RoomEventService;
 import com.ignacio.quizlive.service.RoomService;
 import jakarta.servlet.http.HttpSession;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.Duration;
 
@@ -20,10 +26,12 @@ public class PlayerController {
 
     private final RoomService roomService;
     private final GameService gameService;
+    private final RoomEventService roomEventService;
 
-    public PlayerController(RoomService roomService, GameService gameService) {
+    public PlayerController(RoomService roomService, GameService gameService, RoomEventService roomEventService) {
         this.roomService = roomService;
         this.gameService = gameService;
+        this.roomEventService = roomEventService;
     }
 
     @GetMapping("/join")
@@ -91,7 +99,7 @@ public class PlayerController {
             return "rooms/results";
         }
 
-        RoomQuestion rq = gameService.getCurrentRoomQuestion(room);
+        QuestionSnapshot rq = gameService.getCurrentQuestion(room);
         boolean alreadyAnswered = gameService.hasAnswered(player, rq);
         long secondsLeft = gameService.secondsLeft(room);
         long resultSecondsLeft = gameService.resultSecondsLeft(room);
@@ -102,7 +110,7 @@ public class PlayerController {
         model.addAttribute("secondsLeft", secondsLeft);
         model.addAttribute("resultSecondsLeft", resultSecondsLeft);
         model.addAttribute("alreadyAnswered", alreadyAnswered);
-        model.addAttribute("score", player.getScore());
+        model.addAttribute("score", gameService.getScore(room, player));
         model.addAttribute("position", gameService.getPosition(room, player));
         model.addAttribute("correct", correct);
         model.addAttribute("phase", room.getPhase() == null ? RoomPhase.QUESTION : room.getPhase());
@@ -154,65 +162,111 @@ public class PlayerController {
 
     @GetMapping("/play/{pin}/status")
     @ResponseBody
-    public java.util.Map<String, Object> playStatus(@PathVariable String pin, HttpSession session) {
+    public ResponseEntity<java.util.Map<String, Object>> playStatus(@PathVariable String pin,
+                                                                    HttpSession session,
+                                                                    WebRequest request) {
+        // sondeo sin cambios: se resuelve en memoria, sin leer sala ni jugador
+        Object sessionPlayerId = session.getAttribute("playerId");
+        String etag = sessionPlayerId instanceof Long id ? gameService.playerStatusTag(pin, id) : null;
+        if (etag != null && request.checkNotModified(etag)) {
+            gameService.touchPlayer(pin, (Long) sessionPlayerId);
+            return null;
+        }
+
         Room room;
         try {
             room = roomService.getByPin(pin);
         } catch (RuntimeException ex) {
-            return java.util.Map.of("error", "room_closed");
+            return ResponseEntity.ok(java.util.Map.of("error", "room_closed"));
         }
 
         Player player = getSessionPlayer(session);
         if (player == null || !player.getRoom().getId().equals(room.getId())) {
-            return java.util.Map.of("error", "unauthorized");
+            return ResponseEntity.ok(java.util.Map.of("error", "unauthorized"));
         }
 
         gameService.touchPlayer(player);
-        gameService.finishIfNoActivePlayers(room, 15);
         java.util.Map<String, Object> out = new java.util.HashMap<>();
         out.put("state", room.getState().name());
         out.put("phase", room.getPhase() == null ? RoomPhase.QUESTION.name() : room.getPhase().name());
         boolean manualAdvance = room.getAdvanceMode() == null
                 || room.getAdvanceMode() == com.ignacio.quizlive.model.AdvanceMode.MANUAL;
         if (!manualAdvance || (room.getPhase() != null && room.getPhase() == RoomPhase.RESULTS)) {
-            out.put("score", player.getScore());
+            out.put("score", gameService.getScore(room, player));
             out.put("position", gameService.getPosition(room, player));
         }
         out.put("advanceMode", room.getAdvanceMode() == null ? "AUTO" : room.getAdvanceMode().name());
+        out.put("nextPollMs", gameService.nextPollMs(room, false));
 
         if (room.getState() == RoomState.RUNNING && room.getPhase() == RoomPhase.QUESTION) {
-            RoomQuestion rq = gameService.getCurrentRoomQuestion(room);
+            QuestionSnapshot rq = gameService.getCurrentQuestion(room);
             out.put("secondsLeft", gameService.secondsLeft(room));
-            if (room.getQuestionStartedAt() != null) {
-                long endMs = room.getQuestionStartedAt()
-                        .plusSeconds(room.getTimePerQuestion())
-                        .atZone(java.time.ZoneId.systemDefault())
-                        .toInstant()
-                        .toEpochMilli();
-                out.put("questionEndsAt", endMs);
+            long endsAt = gameService.questionEndsAt(room);
+            if (endsAt > 0) {
+                out.put("questionEndsAt", endsAt);
                 out.put("serverNow", System.currentTimeMillis());
             }
             out.put("alreadyAnswered", gameService.hasAnswered(player, rq));
-            java.util.Map<String, String> q = new java.util.HashMap<>();
-            q.put("statement", rq.getQuestion().getStatement());
-            q.put("optionA", rq.getQuestion().getOptionA());
-            q.put("optionB", rq.getQuestion().getOptionB());
-            q.put("optionC", rq.getQuestion().getOptionC());
-            q.put("optionD", rq.getQuestion().getOptionD());
-            out.put("question", q);
+            // el texto se pide aparte a /question/{id}, que el navegador guarda en cache
+            out.put("questionId", rq.getId());
         }
         if (room.getState() == RoomState.RUNNING && room.getPhase() == RoomPhase.RESULTS) {
-            RoomQuestion rq = gameService.getCurrentRoomQuestion(room);
+            QuestionSnapshot rq = gameService.getCurrentQuestion(room);
             Answer ans = gameService.getAnswer(player, rq);
             boolean answered = ans != null;
             boolean correct = answered && ans.isCorrect();
             out.put("resultSecondsLeft", gameService.resultSecondsLeft(room));
+            long resultEndsAt = gameService.resultEndsAt(room);
+            if (resultEndsAt > 0) {
+                out.put("resultEndsAt", resultEndsAt);
+                out.put("serverNow", System.currentTimeMillis());
+            }
             out.put("answered", answered);
             out.put("correct", correct);
-            out.put("statement", rq.getQuestion().getStatement());
+            out.put("statement", rq.getStatement());
+            // modo AUTO: siguiente pregunta y momento exacto en que se muestra
+            QuestionSnapshot next = gameService.upcomingQuestion(room);
+            if (next != null && resultEndsAt > 0) {
+                out.put("nextQuestionId", next.getId());
+                out.put("revealAt", resultEndsAt);
+                out.put("nextQuestionEndsAt", resultEndsAt + room.getTimePerQuestion() * 1000L);
+            }
+        }
+
+        ResponseEntity.BodyBuilder res = ResponseEntity.ok().cacheControl(CacheControl.noCache());
+        if (etag != null) {
+            res.eTag(etag);
+        }
+        return res.body(out);
+    }
+
+    // JSON serializado una vez por pregunta; no cambia, asi que se puede guardar para siempre
+    @GetMapping("/play/{pin}/question/{roomQuestionId}")
+    @ResponseBody
+    public ResponseEntity<byte[]> question(@PathVariable String pin,
+                                           @PathVariable Long roomQuestionId,
+                                           HttpSession session) {
+        Object playerId = session.getAttribute("playerId");
+        QuestionSnapshot rq = playerId instanceof Long id
+                ? gameService.publishedQuestion(pin, id, roomQuestionId) : null;
+        if (rq == null) {
+            return ResponseEntity.notFound().build();
         }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(Duration.ofDays(1)).cachePrivate().immutable())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(rq.playerPayload());
+    }
 
-        return out;
+    @GetMapping(path = "/play/{pin}/events", produces = "text/event-stream")
+    @ResponseBody
+    public SseEmitter playEvents(@PathVariable String pin, HttpSession session) {
+        Room room = roomService.getByPin(pin);
+        Player player = getSessionPlayer(session);
+        if (player == null || !player.getRoom().getId().equals(room.getId())) {
+            throw new RuntimeException("Jugador no valido");
+        }
+        return roomEventService.subscribe(room.getPin());
     }
 
     private Player getSessionPlayer(HttpSession session) {
@@ -9,11 +9,17 @@ import com.ignacio.quizlive.model.User;
 import com.ignacio.quizlive.service.BlockService;
 import com.ignacio.quizlive.service.CurrentUserService;
 import com.ignacio.quizlive.service.GameService;
+import com.ignacio.quizlive.service.RoomEventService;
 import com.ignacio.quizlive.service.RoomService;
 
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
@@ -25,17 +31,21 @@ import java.util.stream.Collectors;
 @RequestMapping("/rooms")
 public class RoomController {
 
+    private static final long LONG_POLL_MS = 25_000L;
+
     private final RoomService roomService;
     private final BlockService blockService;
     private final CurrentUserService currentUserService;
     private final GameService gameService;
+    private final RoomEventService roomEventService;
 
     public RoomController(RoomService roomService, BlockService blockService, CurrentUserService currentUserService,
-                          GameService gameService) {
+                          GameService gameService, RoomEventService roomEventService) {
         this.roomService = roomService;
         this.blockService = blockService;
         this.currentUserService = currentUserService;
         this.gameService = gameService;
+        this.roomEventService = roomEventService;
     }
 
     private User me() {
@@ -45,11 +55,6 @@ public class RoomController {
     @GetMapping
     public String list(Model model) {
         List<Room> rooms = roomService.myRooms(me());
-        for (Room room : rooms) {
-            if (room.getState() == RoomState.RUNNING) {
-                gameService.finishIfNoActivePlayers(room, 15);
-            }
-        }
         model.addAttribute("rooms", rooms);
         return "rooms/list";
     }
@@ -111,7 +116,7 @@ public class RoomController {
 
         model.addAttribute("room", room);
         model.addAttribute("block", room.getBlock());
-        model.addAttribute("questions", room.getBlock().getQuestions());
+        model.addAttribute("questions", blockService.questionsForRooms(room.getBlock()));
         model.addAttribute("selectedCount", room.getQuestionCount());
 
         return "rooms/select";
@@ -129,7 +134,7 @@ public class RoomController {
         } catch (RuntimeException ex) {
             model.addAttribute("room", room);
             model.addAttribute("block", room.getBlock());
-            model.addAttribute("questions", room.getBlock().getQuestions());
+            model.addAttribute("questions", blockService.questionsForRooms(room.getBlock()));
             model.addAttribute("selectedCount", room.getQuestionCount());
             model.addAttribute("error", ex.getMessage());
             return "rooms/select";
@@ -172,8 +177,7 @@ public class RoomController {
 
         if (room.getState() == RoomState.RUNNING) {
             try {
-                com.ignacio.quizlive.model.RoomQuestion rq = gameService.getCurrentRoomQuestion(room);
-                model.addAttribute("currentQuestion", rq.getQuestion());
+                model.addAttribute("currentQuestion", gameService.getCurrentQuestion(room));
             } catch (Exception ignored) {
                 model.addAttribute("currentQuestion", null);
             }
@@ -189,33 +193,7 @@ public class RoomController {
         model.addAttribute("secondsLeft", secondsLeft);
         model.addAttribute("expiresAtMs", expiresAtMs);
         model.addAttribute("hasSelection", hasSelection);
-        java.util.List<java.util.Map<String, String>> playerStates = new java.util.ArrayList<>();
-        java.util.List<com.ignacio.quizlive.model.Player> playersRaw = gameService.getPlayers(room);
-        com.ignacio.quizlive.model.RoomQuestion rq = null;
-        boolean timeUp = false;
-        java.time.LocalDateTime inactiveLimit = java.time.LocalDateTime.now().minusSeconds(15);
-        try {
-            rq = gameService.getCurrentRoomQuestion(room);
-            timeUp = gameService.secondsLeft(room) == 0;
-        } catch (Exception ignored) {
-        }
-        for (com.ignacio.quizlive.model.Player p : playersRaw) {
-            String status = "blank";
-            if (room.getState() == RoomState.FINISHED) {
-                status = "finished";
-            } else if (p.getLastSeenAt() != null && p.getLastSeenAt().isBefore(inactiveLimit)) {
-                status = "inactive";
-            } else if (rq != null) {
-                com.ignacio.quizlive.model.Answer a = gameService.getAnswer(p, rq);
-                if (a != null) {
-                    status = a.isCorrect() ? "correct" : "wrong";
-                } else if (timeUp) {
-                    status = "wrong";
-                }
-            }
-            playerStates.add(java.util.Map.of("name", p.getName(), "status", status));
-        }
-        model.addAttribute("players", playerStates);
+        model.addAttribute("players", gameService.getPlayerStates(room, 15));
 
         return "rooms/lobby";
     }
@@ -279,83 +257,138 @@ public class RoomController {
         return roomService.myRooms(me()).stream().map(Room::getId).toList();
     }
 
+    // Estado compacto de todas las salas del anfitrion en una sola llamada (lista de salas)
+    @GetMapping("/api/my/status")
+    @ResponseBody
+    public List<java.util.Map<String, Object>> myRoomsStatus() {
+        return roomService.myRoomStatuses(me()).stream().map(r -> {
+            java.util.Map<String, Object> out = new java.util.HashMap<>();
+            out.put("id", r.getId());
+            out.put("state", r.getState().name());
+            out.put("phase", r.getPhase() == null ? RoomPhase.QUESTION.name() : r.getPhase().name());
+            out.put("questionIndex", r.getCurrentQuestionIndex());
+            out.put("questionCount", r.getQuestionCount());
+            Integer players = gameService.livePlayerCount(r.getPin());
+            if (players != null) {
+                out.put("players", players);
+            }
+            return out;
+        }).toList();
+    }
+
     @PostMapping("/{id}/expire")
     @ResponseBody
     public void expire(@PathVariable Long id) {
         roomService.expireRoomNow(me(), id);
     }
 
+    // El anfitrion recibe tambien los avisos de progreso (respuestas, ranking), agrupados por tick
+    @GetMapping(path = "/{id}/events", produces = "text/event-stream")
+    @ResponseBody
+    public SseEmitter events(@PathVariable Long id) {
+        Room room = roomService.getMyRoomStatusById(me(), id);
+        return roomEventService.subscribe(room.getPin(), true);
+    }
+
+    // Para redes sin SSE: la peticion queda aparcada hasta que cambie la version de la sala
+    // (200, el cliente pide entonces /status?since) o pasen LONG_POLL_MS (204)
+    @GetMapping("/{id}/status/wait")
+    @ResponseBody
+    public DeferredResult<ResponseEntity<java.util.Map<String, Object>>> waitStatus(@PathVariable Long id,
+                                                                                     @RequestParam long since) {
+        roomService.getMyRoomStatusById(me(), id);
+        DeferredResult<ResponseEntity<java.util.Map<String, Object>>> result =
+                new DeferredResult<>(LONG_POLL_MS, ResponseEntity.noContent().build());
+        Runnable wake = () -> result.setResult(ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .body(java.util.Map.of("changed", true)));
+        if (!gameService.awaitRoomVersion(id, since, wake)) {
+            result.setResult(ResponseEntity.noContent().build());
+            return result;
+        }
+        result.onCompletion(() -> gameService.cancelRoomVersionWait(id, wake));
+        return result;
+    }
+
     @GetMapping("/{id}/status")
     @ResponseBody
-    public java.util.Map<String, Object> status(@PathVariable Long id) {
-        Room room = roomService.getMyRoomById(me(), id);
-        // sin auto-avance, el anfitrión controla el ritmo
-        gameService.finishIfNoActivePlayers(room, 15);
+    public ResponseEntity<java.util.Map<String, Object>> status(@PathVariable Long id,
+                                                                @RequestParam(required = false) Long since,
+                                                                WebRequest request) {
+        // la version se lee antes que la sala: el contenido nunca es mas viejo que su ETag
+        Long version = gameService.roomVersion(id);
+        String etag = version == null ? null : "r" + id + "-" + version;
+        Room room = roomService.getMyRoomStatusById(me(), id);
+        if (etag == null && room.getState() == RoomState.FINISHED) {
+            etag = "r" + id + "-finished";
+        }
+        if (etag != null && request.checkNotModified(etag)) {
+            return null;
+        }
+        // sin auto-avance, el anfitrión controla el ritmo; las salas abandonadas las cierra RoomCleanupJob
         java.util.Map<String, Object> out = new java.util.HashMap<>();
         out.put("state", room.getState().name());
         out.put("phase", room.getPhase() == null ? RoomPhase.QUESTION.name() : room.getPhase().name());
         out.put("canShowResults", gameService.canShowResults(room));
         out.put("advanceMode", room.getAdvanceMode() == null ? "AUTO" : room.getAdvanceMode().name());
         out.put("secondsLeft", roomService.secondsLeftToExpire(room));
-        java.util.List<java.util.Map<String, String>> playersOut = new java.util.ArrayList<>();
-        java.util.List<com.ignacio.quizlive.model.Player> playersRawOut = gameService.getPlayers(room);
-        com.ignacio.quizlive.model.RoomQuestion rqOut = null;
-        boolean timeUpOut = false;
-        java.time.LocalDateTime inactiveLimitOut = java.time.LocalDateTime.now().minusSeconds(15);
-        try {
-            rqOut = gameService.getCurrentRoomQuestion(room);
-            timeUpOut = gameService.secondsLeft(room) == 0;
-        } catch (Exception ignored) {
-        }
-        for (com.ignacio.quizlive.model.Player p : playersRawOut) {
-            String status = "blank";
-            if (room.getState() == RoomState.FINISHED) {
-                status = "finished";
-            } else if (p.getLastSeenAt() != null && p.getLastSeenAt().isBefore(inactiveLimitOut)) {
-                status = "inactive";
-            } else if (rqOut != null) {
-                com.ignacio.quizlive.model.Answer a = gameService.getAnswer(p, rqOut);
-                if (a != null) {
-                    status = a.isCorrect() ? "correct" : "wrong";
-                } else if (timeUpOut) {
-                    status = "wrong";
-                }
-            }
-            playersOut.add(java.util.Map.of("name", p.getName(), "status", status));
+        out.put("nextPollMs", gameService.nextPollMs(room, true));
+        if (room.getState() == RoomState.WAITING) {
+            // plazo absoluto: con 304 el cliente sigue contando sin pedir de nuevo
+            out.put("expiresAt", room.getLastActivityAt().plusMinutes(10)
+                    .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+            out.put("serverNow", System.currentTimeMillis());
         }
-        out.put("players", playersOut);
-        if (room.getState() != RoomState.WAITING) {
-            out.put("ranking", gameService.getRanking(room).stream()
-                    .map(p -> java.util.Map.of("name", p.getName(), "score", p.getScore()))
-                    .toList());
+        out.put("version", version);
+        // con 'since' solo se envian los jugadores cambiados; si no se puede, estado completo
+        java.util.Map<String, Object> delta = since == null || version == null
+                ? null : gameService.getLobbyDelta(room, since, 15);
+        if (delta != null) {
+            out.put("delta", true);
+            out.putAll(delta);
         } else {
-            out.put("ranking", java.util.List.of());
+            out.put("delta", false);
+            out.put("players", gameService.getPlayerStates(room, 15));
+            if (room.getState() != RoomState.WAITING) {
+                out.put("ranking", gameService.getRanking(room).stream()
+                        .map(p -> java.util.Map.of("id", String.valueOf(p.getPlayerId()), "name", p.getName(), "score", p.getScore()))
+                        .toList());
+            } else {
+                out.put("ranking", java.util.List.of());
+            }
         }
 
         if (room.getState() == RoomState.RUNNING && room.getPhase() == RoomPhase.QUESTION) {
             try {
-                com.ignacio.quizlive.model.RoomQuestion rq = gameService.getCurrentRoomQuestion(room);
+                com.ignacio.quizlive.service.QuestionSnapshot rq = gameService.getCurrentQuestion(room);
                 out.put("questionSecondsLeft", gameService.secondsLeft(room));
-                if (room.getQuestionStartedAt() != null) {
-                    long endMs = room.getQuestionStartedAt()
-                            .plusSeconds(room.getTimePerQuestion())
-                            .atZone(ZoneId.systemDefault())
-                            .toInstant()
-                            .toEpochMilli();
-                    out.put("questionEndsAt", endMs);
+                long endsAt = gameService.questionEndsAt(room);
+                if (endsAt > 0) {
+                    out.put("questionEndsAt", endsAt);
                     out.put("serverNow", System.currentTimeMillis());
                 }
-                java.util.Map<String, String> q = new java.util.HashMap<>();
-                q.put("statement", rq.getQuestion().getStatement());
-                q.put("correctOption", rq.getQuestion().getCorrectOption());
-                out.put("currentQuestion", q);
+                // JSON ya serializado en la copia de la pregunta
+                out.put("currentQuestion", rq.hostPayload());
             } catch (Exception ignored) {
                 out.put("currentQuestion", null);
             }
         }
         if (room.getState() == RoomState.RUNNING && room.getPhase() == RoomPhase.RESULTS) {
             out.put("resultSecondsLeft", gameService.resultSecondsLeft(room));
+            long resultEndsAt = gameService.resultEndsAt(room);
+            if (resultEndsAt > 0) {
+                out.put("resultEndsAt", resultEndsAt);
+                out.put("serverNow", System.currentTimeMillis());
+            }
+        }
+        return statusResponse(out, etag);
+    }
+
+    private static ResponseEntity<java.util.Map<String, Object>> statusResponse(java.util.Map<String, Object> out, String etag) {
+        ResponseEntity.BodyBuilder res = ResponseEntity.ok().cacheControl(CacheControl.noCache());
+        if (etag != null) {
+            res.eTag(etag);
         }
-        return out;
+        return res.body(out);
     }
 }
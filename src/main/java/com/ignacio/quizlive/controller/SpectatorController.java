@@ -0,0 +1,42 @@
+package com.ignacio.quizlive.controller;
+
+import com.ignacio.quizlive.model.Room;
+import com.ignacio.quizlive.service.RoomService;
+import com.ignacio.quizlive.service.SpectatorService;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+// Vista de solo lectura para proyector y moviles del publico: no hace falta ser jugador ni anfitrion
+@Controller
+public class SpectatorController {
+
+    private final RoomService roomService;
+    private final SpectatorService spectatorService;
+
+    public SpectatorController(RoomService roomService, SpectatorService spectatorService) {
+        this.roomService = roomService;
+        this.spectatorService = spectatorService;
+    }
+
+    @GetMapping("/watch/{pin}")
+    public String watch(@PathVariable String pin, Model model) {
+        Room room;
+        try {
+            room = roomService.getByPin(pin);
+        } catch (RuntimeException ex) {
+            return "redirect:/join";
+        }
+        model.addAttribute("room", room);
+        return "rooms/watch";
+    }
+
+    @GetMapping(path = "/watch/{pin}/stream", produces = "text/event-stream")
+    @ResponseBody
+    public SseEmitter stream(@PathVariable String pin) {
+        return spectatorService.subscribe(roomService.getByPin(pin));
+    }
+}
@@ -97,6 +97,7 @@ public class Room {
     }
 
     public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
 
     public String getPin() { return pin; }
     public void setPin(String pin) { this.pin = pin; }
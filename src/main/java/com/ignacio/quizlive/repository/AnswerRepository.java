@@ -1,19 +1,17 @@
 package com.ignacio.quizlive.repository;
 
 import com.ignacio.quizlive.model.Answer;
-import com.ignacio.quizlive.model.Player;
-import com.ignacio.quizlive.model.RoomQuestion;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 public interface AnswerRepository extends JpaRepository<Answer, Long> {
 
-    boolean existsByPlayerAndRoomQuestion(Player player, RoomQuestion roomQuestion);
+    boolean existsByPlayerIdAndRoomQuestionId(Long playerId, Long roomQuestionId);
 
-    java.util.Optional<Answer> findByPlayerAndRoomQuestion(Player player, RoomQuestion roomQuestion);
+    java.util.Optional<Answer> findByPlayerIdAndRoomQuestionId(Long playerId, Long roomQuestionId);
 
-    java.util.List<Answer> findByRoomQuestion(RoomQuestion roomQuestion);
+    java.util.List<Answer> findByRoomQuestionId(Long roomQuestionId);
 
-    long countByRoomQuestion(RoomQuestion roomQuestion);
+    long countByRoomQuestionId(Long roomQuestionId);
 
     void deleteByRoomQuestionRoom(com.ignacio.quizlive.model.Room room);
 }
@@ -17,7 +17,5 @@ public interface PlayerRepository extends JpaRepository<Player, Long> {
 
     long countByRoom(Room room);
 
-    long countByRoomAndLastSeenAtAfter(Room room, java.time.LocalDateTime after);
-
     void deleteByRoom(Room room);
 }
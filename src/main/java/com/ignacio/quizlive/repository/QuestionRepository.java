@@ -1,7 +1,12 @@
 package com.ignacio.quizlive.repository;
 
+import com.ignacio.quizlive.model.Block;
 import com.ignacio.quizlive.model.Question;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.List;
+
 public interface QuestionRepository extends JpaRepository<Question, Long> {
-}
\ No newline at end of file
+
+    List<Question> findByBlockOrderByIdAsc(Block block);
+}
@@ -2,6 +2,7 @@ package com.ignacio.quizlive.repository;
 
 import com.ignacio.quizlive.model.Room;
 import com.ignacio.quizlive.model.RoomQuestion;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.transaction.annotation.Transactional;
@@ -13,6 +14,9 @@ public interface RoomQuestionRepository extends JpaRepository<RoomQuestion, Long
 
     List<RoomQuestion> findByRoomOrderByOrderIndexAsc(Room room);
 
+    @EntityGraph(attributePaths = "question")
+    List<RoomQuestion> findByRoomIdOrderByOrderIndexAsc(Long roomId);
+
     Optional<RoomQuestion> findByRoomAndOrderIndex(Room room, int orderIndex);
 
     @Modifying
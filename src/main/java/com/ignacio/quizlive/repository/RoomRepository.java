@@ -18,6 +18,10 @@ public interface RoomRepository extends JpaRepository<Room, Long> {
 
     List<Room> findByHost(User host);
 
+    List<RoomStatusView> findStatusByHost(User host);
+
+    List<Room> findByState(RoomState state);
+
     List<Room> findByStateAndLastActivityAtBefore(RoomState state, LocalDateTime limit);
 
     long countByBlock(Block block);
@@ -0,0 +1,20 @@
+package com.ignacio.quizlive.repository;
+
+import com.ignacio.quizlive.model.RoomPhase;
+import com.ignacio.quizlive.model.RoomState;
+
+// Proyeccion para la lista de salas: solo las columnas que necesita el refresco
+public interface RoomStatusView {
+
+    Long getId();
+
+    String getPin();
+
+    RoomState getState();
+
+    RoomPhase getPhase();
+
+    Integer getCurrentQuestionIndex();
+
+    int getQuestionCount();
+}
@@ -0,0 +1,126 @@
+package com.ignacio.quizlive.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Component
+public class AnswerBatchWriter {
+
+    private static final String INSERT_ANSWER =
+            "insert into answers (player_id, room_question_id, selected_option, correct, answered_at) values (?, ?, ?, ?, ?)";
+    private static final String ADD_SCORE =
+            "update players set score = score + ? where id = ?";
+    private static final Logger logger = LoggerFactory.getLogger(AnswerBatchWriter.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public AnswerBatchWriter(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Respuestas y puntos del mismo lote en una sola transaccion: o se guardan los dos o ninguno.
+    // Antes se descartan las filas que harian fallar el lote entero en cada reintento: jugadores
+    // que ya no existen (clave ajena) y respuestas ya guardadas o repetidas (player_id, room_question_id).
+    @Transactional
+    public void write(List<PendingAnswer> answers, Map<Long, Integer> deltas) {
+        Set<Long> ids = new HashSet<>(deltas.keySet());
+        for (PendingAnswer a : answers) {
+            ids.add(a.playerId);
+        }
+        if (ids.isEmpty()) return;
+        Set<Long> existing = existingPlayers(ids);
+        List<PendingAnswer> keptAnswers = new ArrayList<>(answers.size());
+        for (PendingAnswer a : answers) {
+            if (existing.contains(a.playerId)) keptAnswers.add(a);
+        }
+        Map<Long, Integer> keptDeltas = new HashMap<>();
+        deltas.forEach((playerId, delta) -> {
+            if (existing.contains(playerId)) keptDeltas.put(playerId, delta);
+        });
+        if (keptAnswers.size() < answers.size() || keptDeltas.size() < deltas.size()) {
+            logger.info("Descartadas {} respuestas y {} puntuaciones de jugadores que ya no existen",
+                    answers.size() - keptAnswers.size(), deltas.size() - keptDeltas.size());
+        }
+        List<PendingAnswer> fresh = withoutStoredAnswers(keptAnswers);
+        if (fresh.size() < keptAnswers.size()) {
+            logger.warn("Descartadas {} respuestas ya guardadas o repetidas en el lote", keptAnswers.size() - fresh.size());
+        }
+        insertAnswers(fresh);
+        addScores(keptDeltas);
+    }
+
+    private List<PendingAnswer> withoutStoredAnswers(List<PendingAnswer> answers) {
+        if (answers.isEmpty()) return answers;
+        Set<Long> questionIds = new HashSet<>();
+        for (PendingAnswer a : answers) {
+            questionIds.add(a.roomQuestionId);
+        }
+        String placeholders = String.join(", ", Collections.nCopies(questionIds.size(), "?"));
+        Set<String> seen = new HashSet<>();
+        jdbcTemplate.query("select player_id, room_question_id from answers where room_question_id in (" + placeholders + ")",
+                rs -> {
+                    seen.add(rs.getLong(1) + ":" + rs.getLong(2));
+                }, questionIds.toArray());
+        List<PendingAnswer> fresh = new ArrayList<>(answers.size());
+        for (PendingAnswer a : answers) {
+            if (seen.add(a.playerId + ":" + a.roomQuestionId)) fresh.add(a);
+        }
+        return fresh;
+    }
+
+    private Set<Long> existingPlayers(Set<Long> ids) {
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        return new HashSet<>(jdbcTemplate.queryForList(
+                "select id from players where id in (" + placeholders + ")", Long.class, ids.toArray()));
+    }
+
+    // con rewriteBatchedStatements=true el driver lo envia como un unico insert multi-fila
+    public void insertAnswers(List<PendingAnswer> answers) {
+        if (answers.isEmpty()) return;
+        List<Object[]> args = new ArrayList<>(answers.size());
+        for (PendingAnswer a : answers) {
+            args.add(new Object[]{
+                    a.playerId, a.roomQuestionId, a.selectedOption, a.correct, Timestamp.valueOf(a.answeredAt)
+            });
+        }
+        jdbcTemplate.batchUpdate(INSERT_ANSWER, args);
+    }
+
+    public void addScores(Map<Long, Integer> deltas) {
+        if (deltas.isEmpty()) return;
+        List<Object[]> args = new ArrayList<>(deltas.size());
+        for (Map.Entry<Long, Integer> e : deltas.entrySet()) {
+            args.add(new Object[]{e.getValue(), e.getKey()});
+        }
+        jdbcTemplate.batchUpdate(ADD_SCORE, args);
+    }
+
+    public static final class PendingAnswer {
+        final Long playerId;
+        final Long roomQuestionId;
+        final String selectedOption;
+        final boolean correct;
+        final LocalDateTime answeredAt;
+
+        PendingAnswer(Long playerId, Long roomQuestionId, String selectedOption, boolean correct) {
+            this.playerId = playerId;
+            this.roomQuestionId = roomQuestionId;
+            this.selectedOption = selectedOption;
+            this.correct = correct;
+            this.answeredAt = LocalDateTime.now();
+        }
+    }
+}
@@ -10,10 +10,12 @@ public class AuthService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final CurrentUserService currentUserService;
 
-    public AuthService(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    public AuthService(UserRepository userRepository, PasswordEncoder passwordEncoder, CurrentUserService currentUserService) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.currentUserService = currentUserService;
     }
 
     public User register(String username, String password) {
@@ -32,7 +34,9 @@ public class AuthService {
         u.setPassword(passwordEncoder.encode(password.trim()));
         u.setRole("HOST");
 
-        return userRepository.save(u);
+        User saved = userRepository.save(u);
+        currentUserService.evict(saved.getUsername());
+        return saved;
     }
 
     public User login(String username, String password) {
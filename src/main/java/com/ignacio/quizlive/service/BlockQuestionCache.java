@@ -0,0 +1,46 @@
+package com.ignacio.quizlive.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ignacio.quizlive.model.Block;
+import com.ignacio.quizlive.model.Question;
+import com.ignacio.quizlive.repository.QuestionRepository;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Preguntas de cada bloque en memoria, compartidas por todas las salas que lo usan.
+ * Cada entrada es una lista inmutable; QuestionService la invalida al crear, editar o borrar
+ * una pregunta y BlockService al borrar el bloque. El tamaño y el TTL acotan la memoria y
+ * recogen los bloques que ya no se usan.
+ */
+@Component
+public class BlockQuestionCache {
+
+    private static final int MAX_BLOCKS = 500;
+    private static final Duration TTL = Duration.ofMinutes(30);
+
+    private final QuestionRepository questionRepository;
+    private final Cache<Long, List<Question>> cache = Caffeine.newBuilder()
+            .maximumSize(MAX_BLOCKS)
+            .expireAfterWrite(TTL)
+            .build();
+
+    public BlockQuestionCache(QuestionRepository questionRepository) {
+        this.questionRepository = questionRepository;
+    }
+
+    // Las preguntas son de solo lectura: para editarlas se cargan de la BD
+    public List<Question> get(Block block) {
+        return cache.get(block.getId(), id -> List.copyOf(questionRepository.findByBlockOrderByIdAsc(block)));
+    }
+
+    // Si habia una carga en curso, Caffeine espera a que acabe y la descarta
+    public void invalidate(Block block) {
+        if (block != null && block.getId() != null) {
+            cache.invalidate(block.getId());
+        }
+    }
+}
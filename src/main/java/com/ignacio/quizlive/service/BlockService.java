@@ -1,6 +1,7 @@
 package com.ignacio.quizlive.service;
 
 import com.ignacio.quizlive.model.Block;
+import com.ignacio.quizlive.model.Question;
 import com.ignacio.quizlive.model.User;
 import com.ignacio.quizlive.repository.BlockRepository;
 import com.ignacio.quizlive.repository.RoomRepository;
@@ -13,10 +14,12 @@ public class BlockService {
 
     private final BlockRepository blockRepository;
     private final RoomRepository roomRepository;
+    private final BlockQuestionCache blockQuestionCache;
 
-    public BlockService(BlockRepository blockRepository, RoomRepository roomRepository) {
+    public BlockService(BlockRepository blockRepository, RoomRepository roomRepository, BlockQuestionCache blockQuestionCache) {
         this.blockRepository = blockRepository;
         this.roomRepository = roomRepository;
+        this.blockQuestionCache = blockQuestionCache;
     }
 
     public Block createBlock(String name, String description, User owner) {
@@ -70,9 +73,15 @@ public class BlockService {
             throw new RuntimeException("No puedes borrar el bloque mientras existan salas asociadas. Borra esas salas primero.");
         }
         blockRepository.delete(block);
+        blockQuestionCache.invalidate(block);
     }
 
     public boolean canBeUsedInRoom(Block block) {
-        return block.getQuestions() != null && block.getQuestions().size() >= 20;
+        return blockQuestionCache.get(block).size() >= 20;
+    }
+
+    // Preguntas del bloque para crear salas y elegir preguntas (solo lectura, desde BlockQuestionCache)
+    public List<Question> questionsForRooms(Block block) {
+        return blockQuestionCache.get(block);
     }
 }
@@ -1,16 +1,32 @@
 package com.ignacio.quizlive.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.ignacio.quizlive.model.User;
 import com.ignacio.quizlive.repository.UserRepository;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
+import java.time.Duration;
+
+// El usuario se resuelve una vez por peticion (los controladores llaman a me() varias veces)
+// y se guarda unos segundos por username, asi el sondeo del anfitrion no consulta la BD cada vez
 @Service
 public class CurrentUserService {
 
+    private static final String REQUEST_ATTR = CurrentUserService.class.getName() + ".user";
+    private static final int MAX_USERS = 1_000;
+    private static final Duration TTL = Duration.ofSeconds(60);
+
     private final UserRepository userRepository;
+    private final Cache<String, User> users = Caffeine.newBuilder()
+            .maximumSize(MAX_USERS)
+            .expireAfterWrite(TTL)
+            .build();
 
     public CurrentUserService(UserRepository userRepository) {
         this.userRepository = userRepository;
@@ -29,17 +45,35 @@ public class CurrentUserService {
         if (auth == null || !auth.isAuthenticated()) return null;
         Object principal = auth.getPrincipal();
         if (principal instanceof UserDetails userDetails) {
-            return userRepository.findByUsername(userDetails.getUsername())
-                    .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
+            return resolve(userDetails.getUsername());
         }
         if (principal instanceof String username) {
             if ("anonymousUser".equals(username)) return null;
-            return userRepository.findByUsername(username)
-                    .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
+            return resolve(username);
         }
         return null;
     }
 
+    // Cambios en la cuenta (alta, datos): la siguiente peticion la vuelve a leer de la BD
+    public void evict(String username) {
+        if (username != null) users.invalidate(username);
+    }
+
+    private User resolve(String username) {
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        if (request != null && request.getAttribute(REQUEST_ATTR, RequestAttributes.SCOPE_REQUEST) instanceof User u
+                && username.equals(u.getUsername())) {
+            return u;
+        }
+        // si no existe, la excepcion sale del loader y no se guarda nada
+        User user = users.get(username, name -> userRepository.findByUsername(name)
+                .orElseThrow(() -> new RuntimeException("Usuario no encontrado")));
+        if (request != null) {
+            request.setAttribute(REQUEST_ATTR, user, RequestAttributes.SCOPE_REQUEST);
+        }
+        return user;
+    }
+
     public void setCurrentUser(User user) {
         throw new UnsupportedOperationException("setCurrentUser no se usa con Spring Security");
     }
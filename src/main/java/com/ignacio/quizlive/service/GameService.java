@@ -1,5 +1,7 @@
 package com.ignacio.quizlive.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.ignacio.quizlive.model.*;
 import com.ignacio.quizlive.repository.AnswerRepository;
 import com.ignacio.quizlive.repository.PlayerRepository;
@@ -9,42 +11,87 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import tools.jackson.databind.util.RawValue;
 
 import jakarta.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Service
 public class GameService {
 
     private static final int RESULT_SECONDS = 3;
+    private static final int ANSWER_BATCH_SIZE = 50;
+    private static final long ANSWER_FLUSH_MS = 200;
+    private static final int CLOSED_ROOMS = 10_000;
+    private static final long POLL_MIN_MS = 250;
+    private static final long POLL_AFTER_DEADLINE_MS = 250;
     private static final Logger logger = LoggerFactory.getLogger(GameService.class);
 
     private final PlayerRepository playerRepository;
     private final AnswerRepository answerRepository;
     private final RoomQuestionRepository roomQuestionRepository;
     private final RoomRepository roomRepository;
+    private final RoomEventService roomEventService;
+    private final AnswerBatchWriter answerBatchWriter;
+    private final RoomTimerService roomTimerService;
+    private final PresenceTracker presenceTracker;
+    private final RoomCache roomCache;
 
     private final ConcurrentHashMap<String, RoomRuntime> runtimes = new ConcurrentHashMap<>();
-    private final ExecutorService answerPool = Executors.newFixedThreadPool(8, new NamedThreadFactory("answer-pool"));
+    // roomId -> PIN de las salas con runtime (el anfitrion consulta por id)
+    private final ConcurrentHashMap<Long, String> runtimePins = new ConcurrentHashMap<>();
+    // salas ya cerradas con un lote pendiente de reintentar (las abiertas se reintentan solas)
+    private final Set<RoomRuntime> flushRetries = ConcurrentHashMap.newKeySet();
+    // salas cuyo runtime ya se cerro: una copia vieja de la sala no puede volver a abrirlo
+    private final Cache<Long, Boolean> closedRooms = Caffeine.newBuilder()
+            .maximumSize(CLOSED_ROOMS)
+            .expireAfterWrite(Duration.ofHours(1))
+            .build();
+    private final ScheduledExecutorService answerFlusher =
+            Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("answer-flush"));
+    // ejecuta los RoomMailbox de todas las salas
+    private final ExecutorService roomLoops =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("room-loop-", 1).factory());
 
     public GameService(PlayerRepository playerRepository,
                        AnswerRepository answerRepository,
                        RoomQuestionRepository roomQuestionRepository,
-                       RoomRepository roomRepository) {
+                       RoomRepository roomRepository,
+                       RoomEventService roomEventService,
+                       AnswerBatchWriter answerBatchWriter,
+                       RoomTimerService roomTimerService,
+                       PresenceTracker presenceTracker,
+                       RoomCache roomCache) {
         this.playerRepository = playerRepository;
         this.answerRepository = answerRepository;
         this.roomQuestionRepository = roomQuestionRepository;
         this.roomRepository = roomRepository;
+        this.roomEventService = roomEventService;
+        this.answerBatchWriter = answerBatchWriter;
+        this.roomTimerService = roomTimerService;
+        this.presenceTracker = presenceTracker;
+        this.roomCache = roomCache;
+        answerFlusher.scheduleWithFixedDelay(this::flushAllAnswers, ANSWER_FLUSH_MS, ANSWER_FLUSH_MS, TimeUnit.MILLISECONDS);
     }
 
     public Player getPlayerById(Long id) {
@@ -52,12 +99,133 @@ public class GameService {
                 .orElseThrow(() -> new RuntimeException("Jugador no encontrado"));
     }
 
-    public List<Player> getPlayers(Room room) {
-        return playerRepository.findByRoomOrderByJoinedAtAsc(room);
+    // Estado de cada jugador para el lobby (correcta, fallada, inactivo...) sin una consulta por jugador:
+    // con runtime todo sale de memoria; sin el (sala terminada) basta la lista de jugadores
+    public List<Map<String, String>> getPlayerStates(Room room, int inactiveSeconds) {
+        List<Map<String, String>> states = new ArrayList<>();
+        RoomRuntime rt = activeRuntime(room);
+        if (rt == null) {
+            for (Player p : playerRepository.findByRoomOrderByJoinedAtAsc(room)) {
+                states.add(Map.of("id", String.valueOf(p.getId()), "name", p.getName(), "status", "finished"));
+            }
+            return states;
+        }
+        PlayerStatusView view = new PlayerStatusView(rt, inactiveSeconds);
+        for (Map.Entry<Long, String> e : rt.playerNames.entrySet()) {
+            states.add(view.state(e.getKey(), e.getValue()));
+        }
+        return states;
+    }
+
+    // Version del estado del lobby; null si la sala no tiene runtime
+    public Long roomVersion(Long roomId) {
+        String pin = runtimePins.get(roomId);
+        RoomRuntime rt = pin == null ? null : runtimes.get(pin);
+        return rt == null ? null : rt.changes.version();
+    }
+
+    // Peticion larga del lobby: 'wake' se ejecuta cuando la version de la sala pase de 'since'.
+    // false si la sala no tiene runtime (no hay nada que esperar)
+    public boolean awaitRoomVersion(Long roomId, long since, Runnable wake) {
+        String pin = runtimePins.get(roomId);
+        RoomRuntime rt = pin == null ? null : runtimes.get(pin);
+        if (rt == null || rt.closed) return false;
+        rt.changes.await(since, wake);
+        return true;
+    }
+
+    public void cancelRoomVersionWait(Long roomId, Runnable wake) {
+        String pin = runtimePins.get(roomId);
+        RoomRuntime rt = pin == null ? null : runtimes.get(pin);
+        if (rt != null) rt.changes.cancel(wake);
+    }
+
+    // Cambios del lobby desde 'since': jugadores nuevos o modificados (estado y puntos) y
+    // jugadores que se han ido. null si hay que enviar el estado completo (cambio de fase,
+    // hueco mayor que el historial o sala sin runtime).
+    public Map<String, Object> getLobbyDelta(Room room, long since, int inactiveSeconds) {
+        RoomRuntime rt = activeRuntime(room);
+        if (rt == null) return null;
+        Set<Long> changed = rt.changes.changedSince(since);
+        if (changed == null) return null;
+        PlayerStatusView view = new PlayerStatusView(rt, inactiveSeconds);
+        List<Map<String, String>> players = new ArrayList<>();
+        List<Map<String, Object>> ranking = new ArrayList<>();
+        List<String> left = new ArrayList<>();
+        for (Long playerId : changed) {
+            String name = rt.playerNames.get(playerId);
+            if (name == null) {
+                left.add(String.valueOf(playerId));
+                continue;
+            }
+            players.add(view.state(playerId, name));
+            if (rt.state == RoomState.WAITING) continue;
+            ranking.add(Map.of("id", String.valueOf(playerId), "name", name,
+                    "score", rt.leaderboard.score(playerId)));
+        }
+        Map<String, Object> delta = new HashMap<>();
+        delta.put("players", players);
+        delta.put("ranking", ranking);
+        delta.put("left", left);
+        return delta;
+    }
+
+    // Vista de solo lectura para espectadores, solo desde memoria; null si la sala no tiene runtime.
+    // La version se lee primero: el contenido nunca es mas viejo que ella
+    public Map<String, Object> spectatorView(String pin, int rankingSize) {
+        RoomRuntime rt = runtimes.get(pin);
+        if (rt == null || rt.closed) return null;
+        Map<String, Object> out = new HashMap<>();
+        out.put("version", rt.changes.version());
+        out.put("state", rt.state.name());
+        out.put("players", rt.playerCount());
+        out.put("questionCount", rt.questionCount);
+        if (rt.state == RoomState.RUNNING && rt.questions != null) {
+            QuestionSnapshot q = rt.question(rt.questionIndex);
+            out.put("phase", rt.phase.name());
+            out.put("questionIndex", rt.questionIndex);
+            out.put("answered", rt.answerCount(q.getId()));
+            if (rt.phase == RoomPhase.QUESTION) {
+                // sin la respuesta correcta mientras se puede contestar
+                out.put("question", new RawValue(new String(q.playerPayload(), StandardCharsets.UTF_8)));
+                out.put("questionEndsAt", toEpochMillis(rt.questionDeadline));
+            } else {
+                out.put("question", q.hostPayload());
+                if (rt.auto) out.put("resultEndsAt", toEpochMillis(rt.resultDeadline));
+            }
+        }
+        List<Map<String, Object>> ranking = new ArrayList<>();
+        if (rt.state != RoomState.WAITING) {
+            for (Leaderboard.Entry e : rt.leaderboard.top(rankingSize)) {
+                ranking.add(Map.of("name", e.getName(), "score", e.getScore()));
+            }
+        }
+        out.put("ranking", ranking);
+        out.put("serverNow", System.currentTimeMillis());
+        return out;
+    }
+
+    public List<Leaderboard.Entry> getRanking(Room room) {
+        RoomRuntime rt = activeRuntime(room);
+        if (rt != null) {
+            return rt.leaderboard.all();
+        }
+        Leaderboard board = new Leaderboard();
+        for (Player p : playerRepository.findByRoomOrderByScoreDescNameAsc(room)) {
+            board.put(p.getId(), p.getName(), p.getScore());
+        }
+        return board.all();
     }
 
-    public List<Player> getRanking(Room room) {
-        return playerRepository.findByRoomOrderByScoreDescNameAsc(room);
+    // Solo memoria: null si la sala no tiene runtime (no lo crea)
+    public Integer livePlayerCount(String pin) {
+        RoomRuntime rt = runtimes.get(pin);
+        return rt == null ? null : (int) rt.playerCount();
+    }
+
+    public int getScore(Room room, Player player) {
+        RoomRuntime rt = activeRuntime(room);
+        return rt == null ? player.getScore() : rt.leaderboard.score(player.getId());
     }
 
     public Player joinRoom(Room room, String name, int reuseAfterSeconds) {
@@ -68,12 +236,15 @@ public class GameService {
         java.util.Optional<Player> existingOpt = playerRepository.findByRoomAndName(room, trimmed);
         if (existingOpt.isPresent()) {
             Player existing = existingOpt.get();
-            LocalDateTime limit = LocalDateTime.now().minusSeconds(reuseAfterSeconds);
-            if (existing.getLastSeenAt() != null && existing.getLastSeenAt().isAfter(limit)) {
+            RoomRuntime rt = runtime(room);
+            presenceTracker.seed(room.getId(), existing.getId(), existing.getLastSeenAt());
+            if (presenceTracker.isActive(room.getId(), existing.getId(), reuseAfterSeconds)) {
                 throw new RuntimeException("Nombre duplicado en la sala");
             }
-            existing.setLastSeenAt(LocalDateTime.now());
-            return playerRepository.save(existing);
+            presenceTracker.touch(room.getId(), existing.getId());
+            rt.addPlayer(existing);
+            roomEventService.playerChanged(room.getPin(), existing.getId(), existing.getName(), "blank");
+            return existing;
         }
 
         Player p = new Player();
@@ -81,122 +252,133 @@ public class GameService {
         p.setName(trimmed);
         p.setScore(0);
 
-        return playerRepository.save(p);
+        Player saved = playerRepository.save(p);
+        runtime(room).addPlayer(saved);
+        presenceTracker.touch(room.getId(), saved.getId());
+        roomEventService.playerChanged(room.getPin(), saved.getId(), saved.getName(), "blank");
+        return saved;
     }
 
-    @Transactional
+    // Solo en memoria: PresenceTracker escribe last_seen_at en lote
     public void touchPlayer(Player player) {
-        player.setLastSeenAt(LocalDateTime.now());
-        playerRepository.save(player);
+        RoomRuntime rt = activeRuntime(player.getRoom());
+        if (rt == null || rt.closed) return;
+        presenceTracker.touch(rt.roomId, player.getId());
     }
 
-    @Transactional
-    public void startRoom(Room room) {
-        if (room.getState() != RoomState.WAITING) {
-            throw new RuntimeException("La sala ya ha empezado");
-        }
-        long totalPlayers = playerRepository.countByRoom(room);
-        if (totalPlayers == 0) {
-            throw new RuntimeException("No puedes iniciar la sala sin jugadores");
-        }
-        long count = roomQuestionRepository.countByRoom(room);
-        if (count != room.getQuestionCount()) {
-            throw new RuntimeException("Falta seleccion de preguntas");
-        }
-        room.setState(RoomState.RUNNING);
-        room.setStartedAt(LocalDateTime.now());
-        room.setCurrentQuestionIndex(1);
-        room.setQuestionStartedAt(LocalDateTime.now());
-        room.setPhase(RoomPhase.QUESTION);
-        room.setPhaseStartedAt(LocalDateTime.now());
-        roomRepository.save(room);
-        if (isAuto(room)) {
-            scheduleQuestionTimer(room);
-        } else {
-            runtime(room).questionOpen.set(true);
-        }
+    public void touchPlayer(String pin, Long playerId) {
+        RoomRuntime rt = runtimes.get(pin);
+        if (rt == null || rt.closed) return;
+        presenceTracker.touch(rt.roomId, playerId);
     }
 
-    @Transactional
-    public void nextQuestion(Room room) {
-        if (room.getState() != RoomState.RUNNING) return;
+    // ETag del estado que ve un jugador; null si no se puede decidir en memoria
+    // (sin runtime o jugador desconocido) y hay que construir la respuesta completa
+    public String playerStatusTag(String pin, Long playerId) {
+        RoomRuntime rt = runtimes.get(pin);
+        if (rt == null || !rt.playerIds.contains(playerId)) return null;
+        return "p" + playerId + "-" + rt.changes.version();
+    }
 
-        // Toggle: QUESTION -> RESULTS (show feedback), RESULTS -> next question
-        if (room.getPhase() == RoomPhase.QUESTION) {
-            long totalPlayers = playerRepository.countByRoom(room);
-            long totalAnswers = answerRepository.countByRoomQuestion(getCurrentRoomQuestion(room));
-            long left = secondsLeft(room);
-            if (totalPlayers > 0 && totalAnswers < totalPlayers && left > 0) {
-                return; // esperar a que respondan o a que termine el tiempo
+    // Pregunta ya mostrada en la sala (actual o anterior), o la siguiente si ya se ha anunciado
+    // (ver upcomingQuestion), para un jugador de la sala; null en cualquier otro caso
+    public QuestionSnapshot publishedQuestion(String pin, Long playerId, Long roomQuestionId) {
+        RoomRuntime rt = runtimes.get(pin);
+        if (rt == null || rt.closed || rt.questions == null || !rt.playerIds.contains(playerId)) return null;
+        if (rt.state == RoomState.WAITING) return null;
+        QuestionSnapshot upcoming = upcomingQuestion(rt);
+        for (QuestionSnapshot q : rt.questions) {
+            if (q.getId().equals(roomQuestionId)) {
+                return q.getOrderIndex() <= rt.questionIndex || q == upcoming ? q : null;
             }
-            endQuestion(room);
-            if (isAuto(room)) {
-                scheduleResultTimer(room);
-            }
-            return;
         }
+        return null;
+    }
 
-        int idx = room.getCurrentQuestionIndex() == null ? 0 : room.getCurrentQuestionIndex();
-        if (idx >= room.getQuestionCount()) {
-            room.setState(RoomState.FINISHED);
-            room.setFinishedAt(LocalDateTime.now());
-            roomRepository.save(room);
-            cleanupRuntime(room);
-            return;
-        }
+    // Siguiente pregunta durante RESULTS en modo AUTO: su inicio ya es conocido (resultEndsAt),
+    // asi que los clientes la descargan antes y la muestran todos a la vez
+    public QuestionSnapshot upcomingQuestion(Room room) {
+        RoomRuntime rt = activeRuntime(room);
+        return rt == null ? null : upcomingQuestion(rt);
+    }
 
-        room.setCurrentQuestionIndex(idx + 1);
-        room.setQuestionStartedAt(LocalDateTime.now());
-        room.setPhase(RoomPhase.QUESTION);
-        room.setPhaseStartedAt(LocalDateTime.now());
-        roomRepository.save(room);
-        if (isAuto(room)) {
-            scheduleQuestionTimer(room);
-        } else {
-            runtime(room).questionOpen.set(true);
+    // Las transiciones de la sala se encolan en su RoomMailbox: peticiones HTTP,
+    // temporizadores y respuestas nunca modifican la sala a la vez
+    public void startRoom(Room room) {
+        if (room.getState() != RoomState.WAITING) {
+            throw new RuntimeException("La sala ya ha empezado");
         }
+        RoomRuntime rt = runtime(room);
+        await(rt.mailbox.submit(() -> doStart(rt)));
+    }
+
+    public void nextQuestion(Room room) {
+        if (room.getState() != RoomState.RUNNING) return;
+        RoomRuntime rt = runtimeOrNull(room);
+        if (rt == null) return;
+        await(rt.mailbox.submit(() -> doNext(rt)));
     }
 
-    @Transactional
     public void forceEndQuestion(Room room) {
         if (room.getState() != RoomState.RUNNING) return;
         if (room.getPhase() != RoomPhase.QUESTION) return;
-        endQuestion(room);
-        if (isAuto(room)) {
-            scheduleResultTimer(room);
-        }
+        RoomRuntime rt = runtimeOrNull(room);
+        if (rt == null) return;
+        await(rt.mailbox.submit(() -> doForceEnd(rt)));
     }
 
-    @Transactional
     public void stopRoom(Room room) {
         if (room.getState() == RoomState.FINISHED) return;
-        room.setState(RoomState.FINISHED);
-        room.setFinishedAt(LocalDateTime.now());
-        roomRepository.save(room);
-        cleanupRuntime(room);
+        RoomRuntime rt = runtimeOrNull(room);
+        if (rt == null) return;
+        await(rt.mailbox.submit(() -> doStop(rt)));
     }
 
-    public RoomQuestion getCurrentRoomQuestion(Room room) {
+    // Mientras la sala tiene runtime la pregunta sale de la copia en memoria
+    public QuestionSnapshot getCurrentQuestion(Room room) {
         int idx = room.getCurrentQuestionIndex() == null ? 0 : room.getCurrentQuestionIndex();
+        RoomRuntime rt = activeRuntime(room);
+        if (rt != null && rt.questions != null) {
+            return rt.question(idx);
+        }
         return roomQuestionRepository.findByRoomAndOrderIndex(room, idx)
+                .map(QuestionSnapshot::of)
                 .orElseThrow(() -> new RuntimeException("Pregunta actual no encontrada"));
     }
 
-    public boolean hasAnswered(Player player, RoomQuestion rq) {
-        return answerRepository.existsByPlayerAndRoomQuestion(player, rq);
+    public boolean hasAnswered(Player player, QuestionSnapshot q) {
+        RoomRuntime rt = runtimes.get(player.getRoom().getPin());
+        if (rt != null) {
+            return rt.answered.containsKey(player.getId() + ":" + q.getId());
+        }
+        return answerRepository.existsByPlayerIdAndRoomQuestionId(player.getId(), q.getId());
     }
 
+    // Los plazos viven en el runtime (System.nanoTime): ni reloj de pared ni lectura de BD
     public long secondsLeft(Room room) {
-        if (room.getPhase() != RoomPhase.QUESTION) return 0;
-        if (room.getQuestionStartedAt() == null) return 0;
+        RoomRuntime rt = activeRuntime(room);
+        if (rt == null || !rt.inPhase(RoomPhase.QUESTION)) return 0;
+        try {
+            if (allAnswered(rt, rt.question(rt.questionIndex).getId())) return 0;
+        } catch (Exception ignored) {
+        }
+        return TimeUnit.NANOSECONDS.toSeconds(remainingNanos(rt.questionDeadline));
+    }
+
+    // Plazo absoluto (epoch ms) para que el cliente cuente con su clockOffset; 0 si no aplica
+    public long questionEndsAt(Room room) {
+        RoomRuntime rt = activeRuntime(room);
+        if (rt == null || !rt.inPhase(RoomPhase.QUESTION)) return 0;
+        // en nanos, como questionTimeUp: secondsLeft trunca y daria "ya" durante el ultimo segundo
+        // en que aun se aceptan respuestas
+        if (questionTimeUp(rt)) {
+            return System.currentTimeMillis();
+        }
         try {
-            RoomQuestion rq = getCurrentRoomQuestion(room);
-            if (allAnswered(room, rq)) return 0;
+            if (allAnswered(rt, rt.question(rt.questionIndex).getId())) return System.currentTimeMillis();
         } catch (Exception ignored) {
         }
-        LocalDateTime end = room.getQuestionStartedAt().plusSeconds(room.getTimePerQuestion());
-        long secondsLeft = Duration.between(LocalDateTime.now(), end).getSeconds();
-        return Math.max(0, secondsLeft);
+        return toEpochMillis(rt.questionDeadline);
     }
 
     @Transactional
@@ -204,52 +386,98 @@ public class GameService {
         // Desactivado: el profesor decide cuándo avanzar
     }
 
-    @Transactional
-    public void finishIfNoActivePlayers(Room room, int inactiveSeconds) {
-        if (room.getState() != RoomState.RUNNING) return;
-        LocalDateTime limit = LocalDateTime.now().minusSeconds(inactiveSeconds);
-        long active = playerRepository.countByRoomAndLastSeenAtAfter(room, limit);
-        if (active == 0) {
-            stopRoom(room);
+    // Barrido periodico (RoomCleanupJob): termina las salas en juego sin jugadores activos
+    // Devuelve las salas cuyo cierre se ha encolado; el mailbox vuelve a comprobarlo y puede
+    // descartarlo (ya terminada o con jugadores de nuevo), el cierre real se registra alli
+    public int stopAbandonedRooms(int inactiveSeconds) {
+        int scheduled = 0;
+        for (RoomRuntime rt : runtimes.values()) {
+            if (rt.closed) continue;
+            // el lobby marca inactivos por tiempo: quien entra o sale del umbral es un cambio
+            Set<Long> active = presenceTracker.activePlayers(rt.roomId, inactiveSeconds);
+            Set<Long> before = rt.activePlayers;
+            PlayerStatusView view = null;
+            for (Long playerId : rt.playerIds) {
+                if (active.contains(playerId) != before.contains(playerId)) {
+                    rt.changes.playerChanged(playerId);
+                    String name = rt.playerNames.get(playerId);
+                    if (name == null) continue;
+                    if (view == null) view = new PlayerStatusView(rt, inactiveSeconds);
+                    roomEventService.playerChanged(rt.pin, playerId, name, view.state(playerId, name).get("status"));
+                }
+            }
+            rt.activePlayers = active;
+            if (rt.state != RoomState.RUNNING) continue;
+            if (presenceTracker.countActive(rt.roomId, inactiveSeconds) > 0) continue;
+            rt.mailbox.execute(() -> {
+                if (rt.closed || rt.state != RoomState.RUNNING) return;
+                if (presenceTracker.countActive(rt.roomId, inactiveSeconds) > 0) return;
+                logger.info("[Room {}] [{}] Sin jugadores activos, sala terminada", rt.pin, Thread.currentThread().getName());
+                doStop(rt);
+            });
+            scheduled++;
         }
+        return scheduled;
     }
 
-    @Transactional
-    public void endQuestion(Room room) {
-        if (room.getState() != RoomState.RUNNING) return;
-        runtime(room).questionOpen.set(false);
-        if (!isAuto(room)) {
-            try {
-                RoomQuestion rq = getCurrentRoomQuestion(room);
-                List<Answer> answers = answerRepository.findByRoomQuestion(rq);
-                for (Answer a : answers) {
-                    if (a.isCorrect()) {
-                        Player p = a.getPlayer();
-                        p.setScore(p.getScore() + 1);
-                        playerRepository.save(p);
-                    }
-                }
-            } catch (Exception ignored) {
+    // Salas RUNNING sin runtime (p. ej. tras reiniciar): se reconstruyen para que el barrido las vea
+    public int adoptRunningRooms() {
+        int adopted = 0;
+        for (Room room : roomRepository.findByState(RoomState.RUNNING)) {
+            if (!runtimes.containsKey(room.getPin()) && runtimeOrNull(room) != null) {
+                adopted++;
             }
         }
-        room.setPhase(RoomPhase.RESULTS);
-        room.setPhaseStartedAt(LocalDateTime.now());
-        roomRepository.save(room);
+        return adopted;
     }
 
     public long resultSecondsLeft(Room room) {
-        if (room.getPhase() != RoomPhase.RESULTS) return 0;
-        if (room.getPhaseStartedAt() == null) return 0;
-        long left = RESULT_SECONDS - Duration.between(LocalDateTime.now(), room.getPhaseStartedAt()).getSeconds();
-        return Math.max(0, left);
+        RoomRuntime rt = activeRuntime(room);
+        if (rt == null || !rt.inPhase(RoomPhase.RESULTS)) return 0;
+        return TimeUnit.NANOSECONDS.toSeconds(remainingNanos(rt.resultDeadline));
+    }
+
+    // Solo en modo AUTO los resultados terminan solos
+    public long resultEndsAt(Room room) {
+        RoomRuntime rt = activeRuntime(room);
+        if (rt == null || !rt.auto || !rt.inPhase(RoomPhase.RESULTS)) return 0;
+        return toEpochMillis(rt.resultDeadline);
     }
 
-    public Answer getAnswer(Player player, RoomQuestion rq) {
-        return answerRepository.findByPlayerAndRoomQuestion(player, rq).orElse(null);
+    // Cuando conviene volver a consultar el estado: despacio si nada puede cambiar,
+    // justo despues del siguiente plazo conocido; 0 si la sala ha terminado
+    public long nextPollMs(Room room, boolean host) {
+        if (room.getState() == RoomState.FINISHED) return 0;
+        if (room.getState() == RoomState.WAITING) return host ? 2000 : 3000;
+        long busy = host ? 1000 : 2000;
+        long deadline = room.getPhase() == RoomPhase.RESULTS ? resultEndsAt(room) : questionEndsAt(room);
+        long remaining = deadline - System.currentTimeMillis();
+        // sin plazo, o ya vencido y esperando al anfitrion
+        if (deadline <= 0 || remaining <= 0) return busy;
+        return Math.max(POLL_MIN_MS, Math.min(busy, remaining + POLL_AFTER_DEADLINE_MS));
+    }
+
+    public Answer getAnswer(Player player, QuestionSnapshot q) {
+        RoomRuntime rt = runtimes.get(player.getRoom().getPin());
+        if (rt == null) {
+            return answerRepository.findByPlayerIdAndRoomQuestionId(player.getId(), q.getId()).orElse(null);
+        }
+        String option = rt.answered.get(player.getId() + ":" + q.getId());
+        if (option == null) return null;
+        Answer a = new Answer();
+        a.setPlayer(player);
+        a.setSelectedOption(option);
+        a.setCorrect(q.isCorrect(option));
+        return a;
     }
 
     public int getPosition(Room room, Player player) {
-        List<Player> ranking = getRanking(room);
+        RoomRuntime rt = activeRuntime(room);
+        if (rt != null) {
+            int rank = rt.leaderboard.rank(player.getId());
+            return rank == 0 ? rt.leaderboard.size() : rank;
+        }
+        List<Player> ranking = playerRepository.findByRoomOrderByScoreDescNameAsc(room);
         for (int i = 0; i < ranking.size(); i++) {
             if (ranking.get(i).getId().equals(player.getId())) {
                 return i + 1;
@@ -261,164 +489,575 @@ public class GameService {
     @Transactional
     public void removePlayer(Player player) {
         playerRepository.delete(player);
+        presenceTracker.remove(player.getRoom().getId(), player.getId());
+        RoomRuntime rt = runtimes.get(player.getRoom().getPin());
+        if (rt != null) {
+            rt.removePlayer(player.getId());
+            roomEventService.playerLeft(rt.pin, player.getId());
+        }
     }
 
-    @Transactional
+    // La orden se procesa en el bucle de la sala; el hilo (virtual) de la peticion
+    // solo espera el resultado para devolver el error al jugador
     public void submitAnswer(Player player, Room room, String option) {
-        RoomRuntime rt = runtime(room);
+        RoomRuntime rt = activeRuntime(room);
+        if (rt == null || room.getState() != RoomState.RUNNING) {
+            throw new RuntimeException("La sala no esta en juego");
+        }
+        logger.info("[Room {}] [{}] Respuesta recibida", room.getPin(), Thread.currentThread().getName());
+        await(rt.mailbox.submit(() -> doAnswer(rt, player.getId(), option)));
+        if (rt.pendingAnswers.size() >= ANSWER_BATCH_SIZE) {
+            answerFlusher.execute(() -> flushAnswers(rt));
+        }
+    }
+
+    public boolean allAnswered(Room room, QuestionSnapshot q) {
+        RoomRuntime rt = activeRuntime(room);
+        if (rt != null) {
+            return allAnswered(rt, q.getId());
+        }
+        long totalPlayers = playerRepository.countByRoom(room);
+        long totalAnswers = answerRepository.countByRoomQuestionId(q.getId());
+        return totalPlayers > 0 && totalAnswers >= totalPlayers;
+    }
+
+    public boolean canShowResults(Room room) {
+        if (room.getPhase() != RoomPhase.QUESTION) return false;
         try {
-            answerPool.submit(() -> {
-                String thread = Thread.currentThread().getName();
-                logger.info("[Room {}] [{}] Respuesta recibida", room.getPin(), thread);
-                synchronized (rt.lock) {
-                    if (room.getState() != RoomState.RUNNING) {
-                        throw new RuntimeException("La sala no esta en juego");
-                    }
-                    if (isAuto(room) && !rt.questionOpen.get()) {
-                        throw new RuntimeException("Tiempo agotado");
-                    }
+            QuestionSnapshot q = getCurrentQuestion(room);
+            return allAnswered(room, q) || secondsLeft(room) == 0;
+        } catch (Exception ignored) {
+            return false;
+        }
+    }
 
-                    RoomQuestion rq = getCurrentRoomQuestion(room);
-                    if (hasAnswered(player, rq)) {
-                        throw new RuntimeException("Ya has respondido");
-                    }
-                    long secondsLeft = secondsLeft(room);
-                    if (secondsLeft <= 0) {
-                        throw new RuntimeException("Tiempo agotado");
-                    }
+    private RoomRuntime runtime(Room room) {
+        RoomRuntime rt = runtimeOrNull(room);
+        if (rt == null) {
+            throw new RuntimeException("La sala ya ha terminado");
+        }
+        return rt;
+    }
 
-                    String opt = option == null ? "" : option.trim().toUpperCase();
-                    if (!(opt.equals("A") || opt.equals("B") || opt.equals("C") || opt.equals("D"))) {
-                        throw new RuntimeException("Opcion invalida");
+    // El Room del llamante puede ser una copia vieja (peticion en curso, RoomCache): el runtime
+    // nuevo se reconstruye desde una lectura fresca y nunca para una sala cerrada, borrada o
+    // terminada, asi una copia vieja no resucita la sala
+    private RoomRuntime runtimeOrNull(Room room) {
+        RoomRuntime rt = runtimes.get(room.getPin());
+        if (rt == null) {
+            if (closedRooms.getIfPresent(room.getId()) != null) return null;
+            Room fresh = roomRepository.findById(room.getId()).orElse(null);
+            if (fresh == null || fresh.getState() == RoomState.FINISHED) return null;
+            rt = runtimes.computeIfAbsent(fresh.getPin(), k -> {
+                runtimePins.put(fresh.getId(), k);
+                return new RoomRuntime(fresh, roomLoops);
+            });
+        }
+        if (!rt.reconciled) {
+            rt.lock.lock();
+            try {
+                if (!rt.reconciled) {
+                    Room fresh = roomRepository.findById(rt.roomId).orElse(null);
+                    if (fresh == null || fresh.getState() == RoomState.FINISHED
+                            || closedRooms.getIfPresent(rt.roomId) != null) {
+                        if (runtimes.remove(rt.pin, rt)) runtimePins.remove(rt.roomId, rt.pin);
+                        rt.closed = true;
+                        return null;
                     }
+                    reconcile(rt, fresh);
+                    rt.reconciled = true;
+                }
+            } finally {
+                rt.lock.unlock();
+            }
+        }
+        return rt.closed ? null : rt;
+    }
 
-                    String key = player.getId() + ":" + rq.getId();
-                    if (rt.answered.putIfAbsent(key, opt) != null) {
-                        throw new RuntimeException("Ya has respondido");
-                    }
+    // Las salas terminadas no tienen runtime: sus lecturas van a BD
+    private RoomRuntime activeRuntime(Room room) {
+        if (room.getState() == RoomState.FINISHED) {
+            return runtimes.get(room.getPin());
+        }
+        return runtimeOrNull(room);
+    }
+
+    // Reconstruye los contadores desde BD cuando se crea el runtime (p. ej. tras reiniciar)
+    private void reconcile(RoomRuntime rt, Room room) {
+        rt.state = room.getState();
+        rt.phase = room.getPhase();
+        rt.questionIndex = room.getCurrentQuestionIndex() == null ? 0 : room.getCurrentQuestionIndex();
+        rt.questionStartedAt = room.getQuestionStartedAt();
+        rt.phaseStartedAt = room.getPhaseStartedAt();
+        // unica conversion reloj de pared -> nanoTime, al reconstruir la sala
+        rt.questionDeadline = rt.questionStartedAt == null ? System.nanoTime()
+                : deadlineFrom(rt.questionStartedAt.plusSeconds(rt.timePerQuestion));
+        rt.resultDeadline = rt.phaseStartedAt == null ? System.nanoTime()
+                : deadlineFrom(rt.phaseStartedAt.plusSeconds(RESULT_SECONDS));
+        for (Player p : playerRepository.findByRoomOrderByJoinedAtAsc(room)) {
+            rt.addPlayer(p);
+            presenceTracker.seed(rt.roomId, p.getId(), p.getLastSeenAt());
+        }
+        if (room.getState() == RoomState.RUNNING) {
+            loadQuestions(rt);
+            QuestionSnapshot q = rt.question(rt.questionIndex);
+            for (Answer a : answerRepository.findByRoomQuestionId(q.getId())) {
+                String key = a.getPlayer().getId() + ":" + q.getId();
+                if (rt.answered.putIfAbsent(key, a.getSelectedOption()) == null) {
+                    rt.answerCounter(q.getId()).increment();
+                }
+            }
+        }
+        logger.info("[Room {}] [{}] Runtime reconstruido ({} jugadores)", rt.pin, Thread.currentThread().getName(), rt.playerIds.size());
+    }
 
-                    Answer a = new Answer();
-                    a.setPlayer(player);
-                    a.setRoomQuestion(rq);
-                    a.setSelectedOption(opt);
+    public void discardRuntime(Room room) {
+        // antes de cerrar: una peticion que aun vea la sala (el borrado no ha hecho commit) no la reabre
+        closedRooms.put(room.getId(), Boolean.TRUE);
+        RoomRuntime rt = runtimes.get(room.getPin());
+        if (rt != null) {
+            await(rt.mailbox.submit(() -> closeRuntime(rt)));
+        }
+        presenceTracker.removeRoom(room.getId());
+        // haya runtime o no, puede haber anfitrion, jugadores o espectadores esperando
+        roomEventService.roomClosed(room.getPin());
+    }
 
-                    boolean correct = rq.getQuestion().getCorrectOption().equalsIgnoreCase(opt);
-                    a.setCorrect(correct);
+    // ---- Ordenes: solo se ejecutan dentro del RoomMailbox de la sala ----
 
-                    answerRepository.save(a);
+    private void doStart(RoomRuntime rt) {
+        if (rt.closed || rt.state != RoomState.WAITING) {
+            throw new RuntimeException("La sala ya ha empezado");
+        }
+        if (rt.playerCount() == 0) {
+            throw new RuntimeException("No puedes iniciar la sala sin jugadores");
+        }
+        loadQuestions(rt);
+        if (rt.questions.length != rt.questionCount) {
+            rt.questions = null;
+            throw new RuntimeException("Falta seleccion de preguntas");
+        }
+        LocalDateTime now = LocalDateTime.now();
+        rt.state = RoomState.RUNNING;
+        rt.questionIndex = 1;
+        rt.questionStartedAt = now;
+        rt.questionDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(rt.timePerQuestion);
+        rt.phase = RoomPhase.QUESTION;
+        rt.phaseStartedAt = now;
+        saveRoom(rt, r -> r.setStartedAt(now));
+        scheduleQuestionTimer(rt);
+        publishPhase(rt, RoomEventService.STARTED);
+    }
 
-                    if (correct && isAuto(room)) {
-                        player.setScore(player.getScore() + 1);
-                        playerRepository.save(player);
-                        rt.scores.merge(player.getId(), 1, Integer::sum);
-                    }
+    private void doNext(RoomRuntime rt) {
+        if (rt.closed || rt.state != RoomState.RUNNING) return;
 
-                    if (isAuto(room)) {
-                        boolean all = allAnswered(room, rq);
-                        if (all) {
-                            rt.cancelTimers();
-                            endQuestion(room);
-                            scheduleResultTimer(room);
-                        }
-                    }
+        // Toggle: QUESTION -> RESULTS (show feedback), RESULTS -> next question
+        if (rt.phase == RoomPhase.QUESTION) {
+            QuestionSnapshot q = rt.question(rt.questionIndex);
+            if (!allAnswered(rt, q.getId()) && !questionTimeUp(rt)) {
+                return; // esperar a que respondan o a que termine el tiempo
+            }
+            doEndQuestion(rt);
+            if (rt.auto) {
+                scheduleResultTimer(rt);
+            }
+            return;
+        }
+
+        if (rt.questionIndex >= rt.questionCount) {
+            doFinish(rt);
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        // en AUTO la pregunta empieza en resultDeadline, que los clientes ya conocen (revealAt),
+        // aunque el temporizador llegue unos milisegundos tarde
+        long start = System.nanoTime();
+        long late = start - rt.resultDeadline;
+        if (rt.auto && late > 0 && late < TimeUnit.SECONDS.toNanos(1)) {
+            start = rt.resultDeadline;
+        }
+        rt.questionIndex = rt.questionIndex + 1;
+        rt.questionStartedAt = now;
+        rt.questionDeadline = start + TimeUnit.SECONDS.toNanos(rt.timePerQuestion);
+        rt.phase = RoomPhase.QUESTION;
+        rt.phaseStartedAt = now;
+        saveRoom(rt, r -> { });
+        scheduleQuestionTimer(rt);
+        publishPhase(rt, RoomEventService.QUESTION);
+    }
 
-                    logger.info("[Room {}] [{}] Respuesta procesada", room.getPin(), thread);
+    private void doForceEnd(RoomRuntime rt) {
+        if (rt.closed || rt.state != RoomState.RUNNING) return;
+        if (rt.phase != RoomPhase.QUESTION) return;
+        doEndQuestion(rt);
+        if (rt.auto) {
+            scheduleResultTimer(rt);
+        }
+    }
+
+    private void doStop(RoomRuntime rt) {
+        if (rt.closed || rt.state == RoomState.FINISHED) return;
+        doFinish(rt);
+    }
+
+    private void doFinish(RoomRuntime rt) {
+        LocalDateTime now = LocalDateTime.now();
+        rt.state = RoomState.FINISHED;
+        saveRoom(rt, r -> r.setFinishedAt(now));
+        closeRuntime(rt);
+        publishPhase(rt, RoomEventService.FINISHED);
+        // terminada ya no es una sala caliente: si alguien la consulta se vuelve a leer de la BD
+        roomCache.evict(rt.pin, rt.roomId);
+    }
+
+    private void doEndQuestion(RoomRuntime rt) {
+        if (rt.state != RoomState.RUNNING) return;
+        rt.cancelTimers();
+        flushAnswers(rt);
+        if (!rt.auto) {
+            // en modo manual se puntua al cerrar la pregunta, con las respuestas en memoria
+            QuestionSnapshot q = rt.question(rt.questionIndex);
+            String suffix = ":" + q.getId();
+            for (Map.Entry<String, String> e : rt.answered.entrySet()) {
+                String key = e.getKey();
+                if (key.endsWith(suffix) && q.isCorrect(e.getValue())) {
+                    Long playerId = Long.valueOf(key.substring(0, key.length() - suffix.length()));
+                    rt.pendingAnswers.addScore(playerId, 1);
+                    rt.leaderboard.addScore(playerId, 1);
                 }
-            }).get();
-        } catch (java.util.concurrent.ExecutionException ex) {
-            Throwable cause = ex.getCause();
-            if (cause instanceof RuntimeException re) {
-                throw re;
             }
-            throw new RuntimeException("Error procesando respuesta");
-        } catch (InterruptedException ex) {
-            Thread.currentThread().interrupt();
-            throw new RuntimeException("Interrumpido");
+            flushAnswers(rt);
         }
+        rt.phase = RoomPhase.RESULTS;
+        rt.phaseStartedAt = LocalDateTime.now();
+        rt.resultDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(RESULT_SECONDS);
+        saveRoom(rt, r -> { });
+        publishPhase(rt, RoomEventService.RESULTS);
     }
 
-    public boolean allAnswered(Room room, RoomQuestion rq) {
-        long totalPlayers = playerRepository.countByRoom(room);
-        long totalAnswers = answerRepository.countByRoomQuestion(rq);
-        return totalPlayers > 0 && totalAnswers >= totalPlayers;
+    private void doAnswer(RoomRuntime rt, Long playerId, String option) {
+        String thread = Thread.currentThread().getName();
+        if (rt.closed || rt.state != RoomState.RUNNING) {
+            throw new RuntimeException("La sala no esta en juego");
+        }
+        if (rt.phase != RoomPhase.QUESTION || questionTimeUp(rt)) {
+            throw new RuntimeException("Tiempo agotado");
+        }
+        QuestionSnapshot q = rt.question(rt.questionIndex);
+
+        String opt = option == null ? "" : option.trim().toUpperCase();
+        if (!(opt.equals("A") || opt.equals("B") || opt.equals("C") || opt.equals("D"))) {
+            throw new RuntimeException("Opcion invalida");
+        }
+
+        String key = playerId + ":" + q.getId();
+        if (rt.answered.putIfAbsent(key, opt) != null) {
+            throw new RuntimeException("Ya has respondido");
+        }
+
+        boolean correct = q.isCorrect(opt);
+        rt.answerCounter(q.getId()).increment();
+        rt.pendingAnswers.add(new AnswerBatchWriter.PendingAnswer(playerId, q.getId(), opt, correct));
+
+        if (correct && rt.auto) {
+            rt.pendingAnswers.addScore(playerId, 1);
+            rt.leaderboard.addScore(playerId, 1);
+        }
+        rt.changes.playerChanged(playerId);
+        // contador y ranking: se agrupan en el siguiente tick de RoomEventService
+        roomEventService.answerReceived(rt.pin, playerId, correct, rt.auto ? rt.leaderboard.score(playerId) : null);
+
+        if (rt.auto && allAnswered(rt, q.getId())) {
+            doEndQuestion(rt);
+            scheduleResultTimer(rt);
+        }
+
+        logger.info("[Room {}] [{}] Respuesta procesada", rt.pin, thread);
     }
 
-    public boolean canShowResults(Room room) {
-        if (room.getPhase() != RoomPhase.QUESTION) return false;
-        try {
-            RoomQuestion rq = getCurrentRoomQuestion(room);
-            return allAnswered(room, rq) || secondsLeft(room) == 0;
-        } catch (Exception ignored) {
-            return false;
+    private QuestionSnapshot upcomingQuestion(RoomRuntime rt) {
+        if (!rt.auto || rt.questions == null || !rt.inPhase(RoomPhase.RESULTS)) return null;
+        int next = rt.questionIndex + 1;
+        return next > rt.questionCount ? null : rt.question(next);
+    }
+
+    // Las preguntas de una sala en juego no cambian: se leen una vez con su Question
+    private void loadQuestions(RoomRuntime rt) {
+        List<RoomQuestion> selection = roomQuestionRepository.findByRoomIdOrderByOrderIndexAsc(rt.roomId);
+        QuestionSnapshot[] questions = new QuestionSnapshot[selection.size()];
+        for (int i = 0; i < questions.length; i++) {
+            questions[i] = QuestionSnapshot.of(selection.get(i));
         }
+        rt.questions = questions;
     }
 
-    private RoomRuntime runtime(Room room) {
-        return runtimes.computeIfAbsent(room.getPin(), RoomRuntime::new);
+    private boolean allAnswered(RoomRuntime rt, Long roomQuestionId) {
+        long totalPlayers = rt.playerCount();
+        return totalPlayers > 0 && rt.answerCount(roomQuestionId) >= totalPlayers;
     }
 
-    private boolean isAuto(Room room) {
-        return room.getAdvanceMode() == null || room.getAdvanceMode() == AdvanceMode.AUTO;
+    private boolean questionTimeUp(RoomRuntime rt) {
+        return remainingNanos(rt.questionDeadline) == 0;
     }
 
-    private void scheduleQuestionTimer(Room room) {
-        RoomRuntime rt = runtime(room);
+    private static long remainingNanos(long deadline) {
+        return Math.max(0, deadline - System.nanoTime());
+    }
+
+    private void publishPhase(RoomRuntime rt, String type) {
+        long endsAt = 0;
+        if (rt.state == RoomState.RUNNING && rt.phase == RoomPhase.QUESTION) {
+            endsAt = toEpochMillis(rt.questionDeadline);
+        } else if (rt.state == RoomState.RUNNING && rt.auto) {
+            endsAt = toEpochMillis(rt.resultDeadline);
+        }
+        roomEventService.phaseChanged(rt.pin, type, rt.state, rt.phase, rt.questionIndex, endsAt);
+    }
+
+    private static long toEpochMillis(long deadline) {
+        return System.currentTimeMillis() + TimeUnit.NANOSECONDS.toMillis(remainingNanos(deadline));
+    }
+
+    private static long deadlineFrom(LocalDateTime end) {
+        return System.nanoTime() + Duration.between(LocalDateTime.now(), end).toNanos();
+    }
+
+    // El runtime manda: se copia su estado sobre la fila de la sala
+    private void saveRoom(RoomRuntime rt, Consumer<Room> extra) {
+        Room r = roomRepository.findById(rt.roomId)
+                .orElseThrow(() -> new RuntimeException("Sala no encontrada"));
+        r.setState(rt.state);
+        r.setPhase(rt.phase);
+        r.setCurrentQuestionIndex(rt.questionIndex);
+        r.setQuestionStartedAt(rt.questionStartedAt);
+        r.setPhaseStartedAt(rt.phaseStartedAt);
+        extra.accept(r);
+        // la cache se actualiza antes de subir la version: quien lea la version nueva ve la sala nueva
+        roomCache.put(roomRepository.save(r));
+        rt.bump();
+    }
+
+    // En modo MANUAL el vencimiento no cierra la pregunta, pero cambia el estado que ve el
+    // anfitrion (ya puede mostrar resultados), asi que tambien sube la version
+    private void scheduleQuestionTimer(RoomRuntime rt) {
         rt.cancelTimers();
-        rt.questionOpen.set(true);
-        long delay = room.getTimePerQuestion();
-        rt.questionTask = rt.scheduler.schedule(() -> {
-            logger.info("[Room {}] [{}] Temporizador finalizado", room.getPin(), Thread.currentThread().getName());
-            rt.questionOpen.set(false);
-            try {
-                forceEndQuestion(room);
-            } catch (Exception ex) {
-                logger.warn("[Room {}] [{}] Error al finalizar pregunta: {}", room.getPin(), Thread.currentThread().getName(), ex.getMessage());
+        int idx = rt.questionIndex;
+        long delay = rt.timePerQuestion;
+        rt.questionTask = roomTimerService.schedule(() -> rt.mailbox.execute(() -> {
+            if (rt.closed || rt.questionIndex != idx || rt.phase != RoomPhase.QUESTION) return;
+            logger.info("[Room {}] [{}] Temporizador finalizado", rt.pin, Thread.currentThread().getName());
+            if (rt.auto) {
+                doForceEnd(rt);
+            } else {
+                rt.bump();
+                roomEventService.timeUp(rt.pin, rt.state, rt.phase, rt.questionIndex);
             }
-        }, delay, TimeUnit.SECONDS);
-        logger.info("[Room {}] [{}] Temporizador iniciado ({}s)", room.getPin(), Thread.currentThread().getName(), delay);
+        }), delay, TimeUnit.SECONDS);
+        logger.info("[Room {}] [{}] Temporizador iniciado ({}s)", rt.pin, Thread.currentThread().getName(), delay);
     }
 
-    private void scheduleResultTimer(Room room) {
-        RoomRuntime rt = runtime(room);
-        rt.resultTask = rt.scheduler.schedule(() -> {
-            logger.info("[Room {}] [{}] Fin resultados, siguiente pregunta", room.getPin(), Thread.currentThread().getName());
-            try {
-                nextQuestion(room);
-            } catch (Exception ex) {
-                logger.warn("[Room {}] [{}] Error al avanzar: {}", room.getPin(), Thread.currentThread().getName(), ex.getMessage());
+    private void scheduleResultTimer(RoomRuntime rt) {
+        int idx = rt.questionIndex;
+        rt.resultTask = roomTimerService.schedule(() -> rt.mailbox.execute(() -> {
+            if (rt.closed || rt.questionIndex != idx || rt.phase != RoomPhase.RESULTS) return;
+            logger.info("[Room {}] [{}] Fin resultados, siguiente pregunta", rt.pin, Thread.currentThread().getName());
+            doNext(rt);
+        }), RESULT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private void closeRuntime(RoomRuntime rt) {
+        closedRooms.put(rt.roomId, Boolean.TRUE);
+        if (runtimes.remove(rt.pin, rt)) {
+            runtimePins.remove(rt.roomId, rt.pin);
+        }
+        rt.closed = true;
+        rt.bump();
+        flushAnswers(rt);
+        rt.shutdown();
+        presenceTracker.removeRoom(rt.roomId);
+    }
+
+    private static void await(CompletableFuture<Void> result) {
+        try {
+            result.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException re) {
+                throw re;
             }
-        }, RESULT_SECONDS, TimeUnit.SECONDS);
+            if (ex.getCause() instanceof Error err) {
+                throw err;
+            }
+            throw new RuntimeException("Error procesando la orden de la sala");
+        }
     }
 
-    private void cleanupRuntime(Room room) {
-        RoomRuntime rt = runtimes.remove(room.getPin());
-        if (rt != null) {
-            rt.shutdown();
+    private void flushAllAnswers() {
+        for (RoomRuntime rt : runtimes.values()) {
+            flushAnswers(rt);
+        }
+        for (RoomRuntime rt : flushRetries) {
+            if (rt.closed) flushAnswers(rt);
+        }
+    }
+
+    // Un lote fallido se reintenta cada ANSWER_FLUSH_MS; si la sala ya esta cerrada se sigue
+    // reintentando desde flushRetries hasta que se escribe o se da por perdido
+    private void flushAnswers(RoomRuntime rt) {
+        switch (rt.pendingAnswers.flush(answerBatchWriter)) {
+            case RETRY -> flushRetries.add(rt);
+            case WRITTEN, DROPPED -> flushRetries.remove(rt);
+            case EMPTY -> { }
         }
     }
 
     @PreDestroy
     public void shutdown() {
+        answerFlusher.shutdownNow();
         for (RoomRuntime rt : runtimes.values()) {
+            flushAnswers(rt);
             rt.shutdown();
         }
+        for (RoomRuntime rt : flushRetries) {
+            flushAnswers(rt);
+            if (rt.pendingAnswers.hasFailedBatch()) {
+                logger.error("[Room {}] Se cierra la aplicacion con {} sin guardar",
+                        rt.pin, rt.pendingAnswers.describeFailedBatch());
+            }
+        }
         runtimes.clear();
-        answerPool.shutdownNow();
+        runtimePins.clear();
+        roomLoops.shutdown();
+    }
+
+    // Calcula el estado de un jugador en el lobby con la pregunta y el tiempo fijados una vez
+    private final class PlayerStatusView {
+        private final RoomRuntime rt;
+        private final int inactiveSeconds;
+        private QuestionSnapshot q;
+        private boolean timeUp;
+
+        PlayerStatusView(RoomRuntime rt, int inactiveSeconds) {
+            this.rt = rt;
+            this.inactiveSeconds = inactiveSeconds;
+            if (rt.state == RoomState.RUNNING) {
+                try {
+                    q = rt.question(rt.questionIndex);
+                    timeUp = rt.phase != RoomPhase.QUESTION || questionTimeUp(rt);
+                } catch (Exception ignored) {
+                }
+            }
+        }
+
+        Map<String, String> state(Long playerId, String name) {
+            String status = "blank";
+            if (rt.state == RoomState.FINISHED) {
+                status = "finished";
+            } else if (!presenceTracker.isActive(rt.roomId, playerId, inactiveSeconds)) {
+                status = "inactive";
+            } else if (q != null) {
+                String option = rt.answered.get(playerId + ":" + q.getId());
+                if (option != null) {
+                    status = q.isCorrect(option) ? "correct" : "wrong";
+                } else if (timeUp) {
+                    status = "wrong";
+                }
+            }
+            return Map.of("id", String.valueOf(playerId), "name", name, "status", status);
+        }
     }
 
     private static final class RoomRuntime {
         final String pin;
-        final ScheduledExecutorService scheduler;
-        final AtomicBoolean questionOpen = new AtomicBoolean(false);
+        final Long roomId;
+        final boolean auto;
+        final int timePerQuestion;
+        final int questionCount;
+        final RoomMailbox mailbox;
+        // estado autoritativo de la sala: solo se modifica desde el mailbox
+        volatile RoomState state;
+        volatile RoomPhase phase;
+        volatile int questionIndex;
+        volatile LocalDateTime questionStartedAt;
+        volatile LocalDateTime phaseStartedAt;
+        // plazos en System.nanoTime(); los timestamps de arriba solo se guardan en BD
+        volatile long questionDeadline;
+        volatile long resultDeadline;
+        volatile boolean closed;
+        // orderIndex 1..n -> questions[orderIndex - 1]; se publica una sola vez, nunca se modifica
+        volatile QuestionSnapshot[] questions;
         final ConcurrentHashMap<String, String> answered = new ConcurrentHashMap<>();
-        final ConcurrentHashMap<Long, Integer> scores = new ConcurrentHashMap<>();
-        final Object lock = new Object();
+        final Leaderboard leaderboard = new Leaderboard();
+        final PendingAnswers pendingAnswers;
+        // ids en lugar de un contador: unirse dos veces o reconciliar no descuadra la cuenta
+        final Set<Long> playerIds = ConcurrentHashMap.newKeySet();
+        // id -> nombre en orden de id (= orden de llegada), para el lobby
+        final ConcurrentSkipListMap<Long, String> playerNames = new ConcurrentSkipListMap<>();
+        final ConcurrentHashMap<Long, LongAdder> answerCounts = new ConcurrentHashMap<>();
+        // solo protege la reconstruccion inicial; las ordenes van por el mailbox
+        final ReentrantLock lock = new ReentrantLock();
+        volatile boolean reconciled;
+        // version + cambios por jugador: respuesta, entrada/salida, presencia; el resto
+        // (fase, pregunta, fin de tiempo en MANUAL) fuerza estado completo
+        final RoomChangeLog changes = new RoomChangeLog();
+        // activos en el ultimo barrido de presencia
+        volatile Set<Long> activePlayers = Set.of();
         ScheduledFuture<?> questionTask;
         ScheduledFuture<?> resultTask;
 
-        RoomRuntime(String pin) {
-            this.pin = pin;
-            this.scheduler = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("room-" + pin + "-timer"));
+        RoomRuntime(Room room, Executor loops) {
+            this.pin = room.getPin();
+            this.pendingAnswers = new PendingAnswers(room.getPin());
+            this.roomId = room.getId();
+            this.auto = room.getAdvanceMode() == null || room.getAdvanceMode() == AdvanceMode.AUTO;
+            this.timePerQuestion = room.getTimePerQuestion();
+            this.questionCount = room.getQuestionCount();
+            this.mailbox = new RoomMailbox(pin, loops);
+        }
+
+        void addPlayer(Player p) {
+            if (playerIds.add(p.getId())) {
+                playerNames.put(p.getId(), p.getName());
+                leaderboard.put(p.getId(), p.getName(), p.getScore());
+                changes.playerChanged(p.getId());
+            }
+        }
+
+        void removePlayer(Long playerId) {
+            playerIds.remove(playerId);
+            playerNames.remove(playerId);
+            leaderboard.remove(playerId);
+            changes.playerChanged(playerId);
+        }
+
+        void bump() {
+            changes.resync();
+        }
+
+        boolean inPhase(RoomPhase p) {
+            return !closed && state == RoomState.RUNNING && phase == p;
+        }
+
+        QuestionSnapshot question(int orderIndex) {
+            QuestionSnapshot[] qs = questions;
+            if (qs == null || orderIndex < 1 || orderIndex > qs.length) {
+                throw new RuntimeException("Pregunta actual no encontrada");
+            }
+            return qs[orderIndex - 1];
+        }
+
+        long playerCount() {
+            return playerIds.size();
+        }
+
+        LongAdder answerCounter(Long roomQuestionId) {
+            return answerCounts.computeIfAbsent(roomQuestionId, k -> new LongAdder());
+        }
+
+        long answerCount(Long roomQuestionId) {
+            LongAdder counter = answerCounts.get(roomQuestionId);
+            return counter == null ? 0 : counter.sum();
         }
 
         void cancelTimers() {
@@ -428,26 +1067,7 @@ public class GameService {
 
         void shutdown() {
             cancelTimers();
-            scheduler.shutdownNow();
             answered.clear();
-            scores.clear();
-        }
-    }
-
-    private static final class NamedThreadFactory implements ThreadFactory {
-        private final String prefix;
-        private int idx = 1;
-
-        private NamedThreadFactory(String prefix) {
-            this.prefix = prefix;
-        }
-
-        @Override
-        public synchronized Thread newThread(Runnable r) {
-            Thread t = new Thread(r);
-            t.setName(prefix + "-" + idx++);
-            t.setDaemon(true);
-            return t;
         }
     }
 }
@@ -0,0 +1,64 @@
+package com.ignacio.quizlive.service;
+
+import com.ignacio.quizlive.model.RoomPhase;
+import com.ignacio.quizlive.model.RoomState;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// Tramas binarias del canal WebSocket del anfitrion (big-endian). Un mensaje puede
+// llevar varias tramas seguidas; cada una empieza por su tipo (1 byte):
+//   PLAYER  id:i64 status:u8 nameLen:u16 name:utf8   (entra o cambia de estado;
+//           status: 0 blank, 1 correct, 2 wrong, 3 inactive, 4 finished)
+//   LEFT    id:i64
+//   ANSWER  id:i64 correct:u8
+//   SCORE   id:i64 score:i32
+//   PHASE   state:u8 phase:u8 questionIndex:u16 endsAt:i64 (epoch ms, 0 si no hay plazo)
+final class HostFrames {
+
+    static final byte PLAYER = 1;
+    static final byte LEFT = 2;
+    static final byte ANSWER = 3;
+    static final byte SCORE = 4;
+    static final byte PHASE = 5;
+
+    private static final String[] STATUSES = {"blank", "correct", "wrong", "inactive", "finished"};
+    private static final int MAX_NAME_BYTES = 0xFFFF;
+
+    private HostFrames() {
+    }
+
+    static byte[] player(long id, String name, String status) {
+        byte code = 0;
+        for (int i = 0; i < STATUSES.length; i++) {
+            if (STATUSES[i].equals(status)) code = (byte) i;
+        }
+        byte[] utf8 = name.getBytes(StandardCharsets.UTF_8);
+        int len = Math.min(utf8.length, MAX_NAME_BYTES);
+        return ByteBuffer.allocate(1 + 8 + 1 + 2 + len)
+                .put(PLAYER).putLong(id).put(code).putShort((short) len).put(utf8, 0, len)
+                .array();
+    }
+
+    static byte[] left(long id) {
+        return ByteBuffer.allocate(1 + 8).put(LEFT).putLong(id).array();
+    }
+
+    static byte[] answer(long id, boolean correct) {
+        return ByteBuffer.allocate(1 + 8 + 1).put(ANSWER).putLong(id).put((byte) (correct ? 1 : 0)).array();
+    }
+
+    static byte[] score(long id, int score) {
+        return ByteBuffer.allocate(1 + 8 + 4).put(SCORE).putLong(id).putInt(score).array();
+    }
+
+    static byte[] phase(RoomState state, RoomPhase phase, int questionIndex, long endsAt) {
+        return ByteBuffer.allocate(1 + 1 + 1 + 2 + 8)
+                .put(PHASE)
+                .put((byte) state.ordinal())
+                .put((byte) (phase == null ? 0xFF : phase.ordinal()))
+                .putShort((short) questionIndex)
+                .putLong(endsAt)
+                .array();
+    }
+}
@@ -0,0 +1,158 @@
+package com.ignacio.quizlive.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Conexiones WebSocket del anfitrion por PIN. Las tramas (HostFrames) se acumulan por sala
+ * y salen juntas en un solo mensaje binario cada TICK_MS; los cambios de fase salen al momento.
+ * Los envios van en hilos virtuales propios: quien publica (el bucle de la sala) solo encola.
+ */
+@Service
+public class HostSocketHub {
+
+    private static final long TICK_MS = 250;
+    private static final int SEND_TIME_LIMIT_MS = 5_000;
+    private static final int BUFFER_SIZE_LIMIT = 512 * 1024;
+    private static final Logger logger = LoggerFactory.getLogger(HostSocketHub.class);
+    // la sala ya no existe: lobby.js no reintenta la conexion
+    static final CloseStatus ROOM_CLOSED = new CloseStatus(4001, "Sala cerrada");
+
+    private final ConcurrentHashMap<String, Channel> channels = new ConcurrentHashMap<>();
+    // los envios nunca corren en el bucle de la sala ni en el hilo del tick
+    private final ExecutorService senders =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("host-ws-", 1).factory());
+
+    public void register(String pin, WebSocketSession session) {
+        // el decorador serializa los envios y corta a los clientes demasiado lentos
+        WebSocketSession safe = new ConcurrentWebSocketSessionDecorator(session, SEND_TIME_LIMIT_MS, BUFFER_SIZE_LIMIT);
+        // alta dentro de compute: no puede caer en un canal que unregister acaba de quitar por vacio
+        channels.compute(pin, (k, channel) -> {
+            if (channel == null) channel = new Channel();
+            channel.sessions.add(safe);
+            return channel;
+        });
+        session.getAttributes().put(HostSocketHub.class.getName(), safe);
+    }
+
+    public void unregister(String pin, WebSocketSession session) {
+        Object safe = session.getAttributes().get(HostSocketHub.class.getName());
+        channels.computeIfPresent(pin, (k, channel) -> {
+            channel.sessions.remove(safe);
+            return channel.sessions.isEmpty() ? null : channel;
+        });
+    }
+
+    void enqueue(String pin, byte[] frame) {
+        Channel channel = channels.get(pin);
+        if (channel == null) return;
+        channel.bufferLock.lock();
+        try {
+            channel.pending.writeBytes(frame);
+        } finally {
+            channel.bufferLock.unlock();
+        }
+    }
+
+    // Cambio de fase: lo pendiente y la trama salen ya, sin esperar al tick, pero el envio va
+    // en su propio hilo: el bucle de la sala solo encola
+    void sendNow(String pin, byte[] frame) {
+        Channel channel = channels.get(pin);
+        if (channel == null) return;
+        enqueue(pin, frame);
+        senders.execute(() -> flush(pin, channel));
+    }
+
+    void close(String pin) {
+        close(pin, CloseStatus.NORMAL);
+    }
+
+    // Lo pendiente sale antes de cerrar (la trama FINISHED incluida)
+    void close(String pin, CloseStatus status) {
+        Channel channel = channels.remove(pin);
+        if (channel == null) return;
+        senders.execute(() -> {
+            flush(pin, channel);
+            for (WebSocketSession session : channel.sessions) {
+                try {
+                    session.close(status);
+                } catch (IOException | RuntimeException ignored) {
+                }
+            }
+        });
+    }
+
+    @Scheduled(fixedRate = TICK_MS)
+    public void tick() {
+        channels.forEach((pin, channel) -> {
+            if (channel.pending.size() > 0) {
+                senders.execute(() -> flush(pin, channel));
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        senders.shutdownNow();
+    }
+
+    // un envio por sala a la vez: el tick y un cambio de fase no se adelantan entre si.
+    // ReentrantLock y no synchronized: el envio bloquea y no debe fijar el hilo portador
+    private void flush(String pin, Channel channel) {
+        channel.sendLock.lock();
+        try {
+            byte[] payload;
+            channel.bufferLock.lock();
+            try {
+                if (channel.pending.size() == 0) return;
+                payload = channel.pending.toByteArray();
+                channel.pending.reset();
+            } finally {
+                channel.bufferLock.unlock();
+            }
+            for (WebSocketSession session : channel.sessions) {
+                try {
+                    session.sendMessage(new BinaryMessage(payload));
+                } catch (IOException | RuntimeException ex) {
+                    // tambien SessionLimitExceededException (anfitrion demasiado lento): se cierra
+                    // solo esa sesion y las demas salas siguen recibiendo
+                    logger.debug("[Room {}] WebSocket del anfitrion cerrado: {}", pin, ex.getMessage());
+                    channel.sessions.remove(session);
+                    closeQuietly(session);
+                }
+            }
+        } finally {
+            channel.sendLock.unlock();
+        }
+    }
+
+    private static void closeQuietly(WebSocketSession session) {
+        try {
+            if (session.isOpen()) session.close(CloseStatus.SESSION_NOT_RELIABLE);
+        } catch (IOException | RuntimeException ignored) {
+        }
+    }
+
+    private static final class Channel {
+        final List<WebSocketSession> sessions = new CopyOnWriteArrayList<>();
+        final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+        final ReentrantLock sendLock = new ReentrantLock();
+        final ReentrantLock bufferLock = new ReentrantLock();
+    }
+}
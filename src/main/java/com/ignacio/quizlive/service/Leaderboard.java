@@ -0,0 +1,178 @@
+package com.ignacio.quizlive.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Ranking de una sala ordenado por puntos (desc), nombre (asc) e id.
+ * Treap con tamano de subarbol: posicion y top-K en O(log n).
+ */
+public class Leaderboard {
+
+    private static final Comparator<Entry> ORDER = Comparator
+            .comparingInt((Entry e) -> -e.score)
+            .thenComparing(e -> e.name, String.CASE_INSENSITIVE_ORDER)
+            .thenComparing(e -> e.playerId);
+
+    private final Map<Long, Entry> byPlayer = new HashMap<>();
+    private Node root;
+
+    public synchronized void put(Long playerId, String name, int score) {
+        Entry old = byPlayer.get(playerId);
+        if (old != null) {
+            root = delete(root, old);
+        }
+        Entry e = new Entry(playerId, name, score);
+        byPlayer.put(playerId, e);
+        Node[] parts = split(root, e);
+        root = merge(merge(parts[0], new Node(e)), parts[1]);
+    }
+
+    public synchronized void addScore(Long playerId, int delta) {
+        Entry old = byPlayer.get(playerId);
+        if (old == null) return;
+        put(playerId, old.name, old.score + delta);
+    }
+
+    public synchronized void remove(Long playerId) {
+        Entry old = byPlayer.remove(playerId);
+        if (old != null) {
+            root = delete(root, old);
+        }
+    }
+
+    // 1..n, o 0 si el jugador no esta en la sala
+    public synchronized int rank(Long playerId) {
+        Entry key = byPlayer.get(playerId);
+        if (key == null) return 0;
+        int rank = 1;
+        Node n = root;
+        while (n != null) {
+            int c = ORDER.compare(key, n.entry);
+            if (c == 0) {
+                return rank + size(n.left);
+            }
+            if (c < 0) {
+                n = n.left;
+            } else {
+                rank += size(n.left) + 1;
+                n = n.right;
+            }
+        }
+        return 0;
+    }
+
+    public synchronized int score(Long playerId) {
+        Entry e = byPlayer.get(playerId);
+        return e == null ? 0 : e.score;
+    }
+
+    public synchronized List<Entry> top(int k) {
+        List<Entry> out = new ArrayList<>(Math.min(k, byPlayer.size()));
+        Deque<Node> stack = new ArrayDeque<>();
+        Node n = root;
+        while ((n != null || !stack.isEmpty()) && out.size() < k) {
+            while (n != null) {
+                stack.push(n);
+                n = n.left;
+            }
+            n = stack.pop();
+            out.add(n.entry);
+            n = n.right;
+        }
+        return out;
+    }
+
+    public synchronized List<Entry> all() {
+        return top(byPlayer.size());
+    }
+
+    public synchronized int size() {
+        return byPlayer.size();
+    }
+
+    private static int size(Node n) {
+        return n == null ? 0 : n.size;
+    }
+
+    private static void update(Node n) {
+        n.size = 1 + size(n.left) + size(n.right);
+    }
+
+    // separa en (< key) y (>= key)
+    private static Node[] split(Node n, Entry key) {
+        if (n == null) return new Node[]{null, null};
+        if (ORDER.compare(n.entry, key) < 0) {
+            Node[] r = split(n.right, key);
+            n.right = r[0];
+            update(n);
+            return new Node[]{n, r[1]};
+        }
+        Node[] l = split(n.left, key);
+        n.left = l[1];
+        update(n);
+        return new Node[]{l[0], n};
+    }
+
+    private static Node merge(Node a, Node b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        if (a.priority > b.priority) {
+            a.right = merge(a.right, b);
+            update(a);
+            return a;
+        }
+        b.left = merge(a, b.left);
+        update(b);
+        return b;
+    }
+
+    private static Node delete(Node n, Entry key) {
+        if (n == null) return null;
+        int c = ORDER.compare(key, n.entry);
+        if (c == 0) {
+            return merge(n.left, n.right);
+        }
+        if (c < 0) {
+            n.left = delete(n.left, key);
+        } else {
+            n.right = delete(n.right, key);
+        }
+        update(n);
+        return n;
+    }
+
+    private static final class Node {
+        final Entry entry;
+        final int priority = ThreadLocalRandom.current().nextInt();
+        Node left;
+        Node right;
+        int size = 1;
+
+        Node(Entry entry) {
+            this.entry = entry;
+        }
+    }
+
+    public static final class Entry {
+        private final Long playerId;
+        private final String name;
+        private final int score;
+
+        Entry(Long playerId, String name, int score) {
+            this.playerId = playerId;
+            this.name = name;
+            this.score = score;
+        }
+
+        public Long getPlayerId() { return playerId; }
+        public String getName() { return name; }
+        public int getScore() { return score; }
+    }
+}
@@ -0,0 +1,20 @@
+package com.ignacio.quizlive.service;
+
+import java.util.concurrent.ThreadFactory;
+
+final class NamedThreadFactory implements ThreadFactory {
+    private final String prefix;
+    private int idx = 1;
+
+    NamedThreadFactory(String prefix) {
+        this.prefix = prefix;
+    }
+
+    @Override
+    public synchronized Thread newThread(Runnable r) {
+        Thread t = new Thread(r);
+        t.setName(prefix + "-" + idx++);
+        t.setDaemon(true);
+        return t;
+    }
+}
@@ -0,0 +1,116 @@
+package com.ignacio.quizlive.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Respuestas y puntos de una sala pendientes de escribir en la BD (escritura diferida).
+ * add/addScore se llaman desde el mailbox de la sala; flush desde cualquier hilo, uno a la vez.
+ * Si el lote falla se guarda tal cual y va delante en el siguiente flush; tras MAX_ATTEMPTS
+ * se da por perdido y se registra como error.
+ */
+final class PendingAnswers {
+
+    static final int MAX_ATTEMPTS = 10;
+    private static final Logger logger = LoggerFactory.getLogger(PendingAnswers.class);
+
+    enum FlushResult { EMPTY, WRITTEN, RETRY, DROPPED }
+
+    private final String pin;
+    private final ConcurrentLinkedQueue<AnswerBatchWriter.PendingAnswer> answers = new ConcurrentLinkedQueue<>();
+    private final ConcurrentHashMap<Long, Integer> scores = new ConcurrentHashMap<>();
+    private final AtomicInteger count = new AtomicInteger();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    // lote que fallo al escribirse; solo se tocan con flushLock
+    private final List<AnswerBatchWriter.PendingAnswer> failedAnswers = new ArrayList<>();
+    private final Map<Long, Integer> failedScores = new HashMap<>();
+    private int attempts;
+
+    PendingAnswers(String pin) {
+        this.pin = pin;
+    }
+
+    void add(AnswerBatchWriter.PendingAnswer answer) {
+        answers.add(answer);
+        count.incrementAndGet();
+    }
+
+    void addScore(Long playerId, int delta) {
+        scores.merge(playerId, delta, Integer::sum);
+    }
+
+    // Respuestas en cola sin contar el lote fallido
+    int size() {
+        return count.get();
+    }
+
+    boolean hasFailedBatch() {
+        flushLock.lock();
+        try {
+            return !failedAnswers.isEmpty() || !failedScores.isEmpty();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    FlushResult flush(AnswerBatchWriter writer) {
+        flushLock.lock();
+        try {
+            List<AnswerBatchWriter.PendingAnswer> batch = new ArrayList<>(failedAnswers);
+            Map<Long, Integer> scoreDeltas = new HashMap<>(failedScores);
+            failedAnswers.clear();
+            failedScores.clear();
+            int polled = 0;
+            AnswerBatchWriter.PendingAnswer pa;
+            while ((pa = answers.poll()) != null) {
+                batch.add(pa);
+                polled++;
+            }
+            count.addAndGet(-polled);
+            for (Long playerId : scores.keySet()) {
+                Integer delta = scores.remove(playerId);
+                if (delta != null) scoreDeltas.merge(playerId, delta, Integer::sum);
+            }
+            if (batch.isEmpty() && scoreDeltas.isEmpty()) return FlushResult.EMPTY;
+            try {
+                writer.write(batch, scoreDeltas);
+                attempts = 0;
+                logger.debug("[Room {}] [{}] Lote escrito ({} respuestas)", pin, Thread.currentThread().getName(), batch.size());
+                return FlushResult.WRITTEN;
+            } catch (RuntimeException ex) {
+                if (++attempts < MAX_ATTEMPTS) {
+                    failedAnswers.addAll(batch);
+                    failedScores.putAll(scoreDeltas);
+                    logger.warn("[Room {}] [{}] Error escribiendo lote de respuestas (intento {}/{}), se reintentara: {}",
+                            pin, Thread.currentThread().getName(), attempts, MAX_ATTEMPTS, ex.getMessage());
+                    return FlushResult.RETRY;
+                }
+                attempts = 0;
+                logger.error("[Room {}] Lote de respuestas PERDIDO tras {} intentos: {} respuestas, puntos {}",
+                        pin, MAX_ATTEMPTS, batch.size(), scoreDeltas, ex);
+                return FlushResult.DROPPED;
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // Para el aviso al cerrar la aplicacion
+    String describeFailedBatch() {
+        flushLock.lock();
+        try {
+            return failedAnswers.size() + " respuestas y puntos " + failedScores;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.ignacio.quizlive.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ultima actividad de cada jugador en memoria (System.nanoTime).
+ * players.last_seen_at se actualiza en un unico lote cada pocos segundos.
+ */
+@Component
+public class PresenceTracker {
+
+    private static final String UPDATE_LAST_SEEN =
+            "update players set last_seen_at = ? where id = ?";
+    private static final Logger logger = LoggerFactory.getLogger(PresenceTracker.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // roomId -> (playerId -> nanos)
+    private final ConcurrentHashMap<Long, ConcurrentHashMap<Long, Long>> rooms = new ConcurrentHashMap<>();
+    // playerId -> nanos pendientes de escribir
+    private final ConcurrentHashMap<Long, Long> dirty = new ConcurrentHashMap<>();
+
+    public PresenceTracker(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void touch(Long roomId, Long playerId) {
+        long now = System.nanoTime();
+        room(roomId).put(playerId, now);
+        dirty.put(playerId, now);
+    }
+
+    // Carga el valor de BD si aun no hay nada en memoria (p. ej. tras reiniciar)
+    public void seed(Long roomId, Long playerId, LocalDateTime lastSeenAt) {
+        if (lastSeenAt == null) return;
+        long nanos = System.nanoTime() - Duration.between(lastSeenAt, LocalDateTime.now()).toNanos();
+        room(roomId).putIfAbsent(playerId, nanos);
+    }
+
+    public boolean isActive(Long roomId, Long playerId, int seconds) {
+        Map<Long, Long> players = rooms.get(roomId);
+        Long seen = players == null ? null : players.get(playerId);
+        return seen != null && System.nanoTime() - seen < TimeUnit.SECONDS.toNanos(seconds);
+    }
+
+    public long countActive(Long roomId, int seconds) {
+        Map<Long, Long> players = rooms.get(roomId);
+        if (players == null) return 0;
+        long limit = System.nanoTime() - TimeUnit.SECONDS.toNanos(seconds);
+        long active = 0;
+        for (Long seen : players.values()) {
+            if (seen - limit > 0) active++;
+        }
+        return active;
+    }
+
+    public Set<Long> activePlayers(Long roomId, int seconds) {
+        Map<Long, Long> players = rooms.get(roomId);
+        if (players == null) return Set.of();
+        long limit = System.nanoTime() - TimeUnit.SECONDS.toNanos(seconds);
+        Set<Long> active = new HashSet<>();
+        for (Map.Entry<Long, Long> e : players.entrySet()) {
+            if (e.getValue() - limit > 0) active.add(e.getKey());
+        }
+        return active;
+    }
+
+    public void remove(Long roomId, Long playerId) {
+        Map<Long, Long> players = rooms.get(roomId);
+        if (players != null) players.remove(playerId);
+        dirty.remove(playerId);
+    }
+
+    // Lo pendiente de la sala se escribe antes de olvidarla: es la ultima actividad de cada jugador
+    public void removeRoom(Long roomId) {
+        Map<Long, Long> players = rooms.remove(roomId);
+        if (players == null) return;
+        write(players.keySet());
+    }
+
+    @Scheduled(fixedDelay = 5_000)
+    public void flush() {
+        if (dirty.isEmpty()) return;
+        write(dirty.keySet());
+    }
+
+    private void write(Iterable<Long> playerIds) {
+        long nowNanos = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> args = new ArrayList<>();
+        for (Long playerId : playerIds) {
+            Long seen = dirty.remove(playerId);
+            if (seen == null) continue;
+            LocalDateTime at = now.minusNanos(nowNanos - seen);
+            args.add(new Object[]{Timestamp.valueOf(at), playerId});
+        }
+        if (args.isEmpty()) return;
+        try {
+            jdbcTemplate.batchUpdate(UPDATE_LAST_SEEN, args);
+            logger.debug("[Presence] [{}] Lote escrito ({} jugadores)", Thread.currentThread().getName(), args.size());
+        } catch (Exception ex) {
+            logger.warn("[Presence] [{}] Error escribiendo presencia: {}", Thread.currentThread().getName(), ex.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private ConcurrentHashMap<Long, Long> room(Long roomId) {
+        return rooms.computeIfAbsent(roomId, k -> new ConcurrentHashMap<>());
+    }
+}
@@ -9,9 +9,11 @@ import org.springframework.stereotype.Service;
 public class QuestionService {
 
     private final QuestionRepository questionRepository;
+    private final BlockQuestionCache blockQuestionCache;
 
-    public QuestionService(QuestionRepository questionRepository) {
+    public QuestionService(QuestionRepository questionRepository, BlockQuestionCache blockQuestionCache) {
         this.questionRepository = questionRepository;
+        this.blockQuestionCache = blockQuestionCache;
     }
 
     public Question create(Block block,
@@ -29,7 +31,9 @@ public class QuestionService {
         q.setOptionD(optionD.trim());
         q.setCorrectOption(correctOption.trim().toUpperCase());
 
-        return questionRepository.save(q);
+        Question saved = questionRepository.save(q);
+        blockQuestionCache.invalidate(block);
+        return saved;
     }
 
     public Question update(Question q,
@@ -45,11 +49,14 @@ public class QuestionService {
         q.setOptionD(optionD.trim());
         q.setCorrectOption(correctOption.trim().toUpperCase());
 
-        return questionRepository.save(q);
+        Question saved = questionRepository.save(q);
+        blockQuestionCache.invalidate(q.getBlock());
+        return saved;
     }
 
     public void delete(Question q) {
         questionRepository.delete(q);
+        blockQuestionCache.invalidate(q.getBlock());
     }
 
     private void validate(String statement,
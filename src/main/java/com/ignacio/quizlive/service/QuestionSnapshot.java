@@ -0,0 +1,79 @@
+package com.ignacio.quizlive.service;
+
+import com.ignacio.quizlive.model.Question;
+import com.ignacio.quizlive.model.RoomQuestion;
+import tools.jackson.core.io.SerializedString;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.databind.util.RawValue;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Copia inmutable de una pregunta seleccionada para la sala.
+ * Se carga una vez al iniciar la partida y no vuelve a tocar la BD.
+ * El JSON de la pregunta se serializa aqui una sola vez y se reutiliza en cada sondeo.
+ */
+public final class QuestionSnapshot {
+
+    private final Long id;
+    private final int orderIndex;
+    private final String statement;
+    private final String optionA;
+    private final String optionB;
+    private final String optionC;
+    private final String optionD;
+    private final String correctOption;
+    // enunciado y opciones, sin la respuesta correcta
+    private final byte[] playerPayload;
+    // enunciado y respuesta correcta para el anfitrion
+    private final RawValue hostPayload;
+
+    private QuestionSnapshot(RoomQuestion rq) {
+        Question q = rq.getQuestion();
+        this.id = rq.getId();
+        this.orderIndex = rq.getOrderIndex();
+        this.statement = q.getStatement();
+        this.optionA = q.getOptionA();
+        this.optionB = q.getOptionB();
+        this.optionC = q.getOptionC();
+        this.optionD = q.getOptionD();
+        this.correctOption = q.getCorrectOption();
+
+        Map<String, Object> player = new LinkedHashMap<>();
+        player.put("id", id);
+        player.put("statement", statement);
+        player.put("optionA", optionA);
+        player.put("optionB", optionB);
+        player.put("optionC", optionC);
+        player.put("optionD", optionD);
+        this.playerPayload = JsonMapper.shared().writeValueAsBytes(player);
+
+        Map<String, Object> host = new LinkedHashMap<>();
+        host.put("statement", statement);
+        host.put("correctOption", correctOption);
+        this.hostPayload = new RawValue(new SerializedString(JsonMapper.shared().writeValueAsString(host)));
+    }
+
+    static QuestionSnapshot of(RoomQuestion rq) {
+        return new QuestionSnapshot(rq);
+    }
+
+    public boolean isCorrect(String option) {
+        return correctOption.equalsIgnoreCase(option);
+    }
+
+    // id de la RoomQuestion
+    public Long getId() { return id; }
+    public int getOrderIndex() { return orderIndex; }
+    public String getStatement() { return statement; }
+    public String getOptionA() { return optionA; }
+    public String getOptionB() { return optionB; }
+    public String getOptionC() { return optionC; }
+    public String getOptionD() { return optionD; }
+    public String getCorrectOption() { return correctOption; }
+
+    // bytes compartidos: no modificar
+    public byte[] playerPayload() { return playerPayload; }
+    public RawValue hostPayload() { return hostPayload; }
+}
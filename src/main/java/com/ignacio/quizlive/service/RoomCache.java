@@ -0,0 +1,115 @@
+package com.ignacio.quizlive.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ignacio.quizlive.model.Room;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+
+/**
+ * PIN -> sala en memoria para las peticiones calientes (jugadores, estado del anfitrion).
+ * RoomService y GameService guardan aqui cada sala que guardan y la quitan al borrarla o
+ * terminarla; el tamaño y el tiempo sin uso acotan lo que queda de salas viejas. Se guarda
+ * siempre una copia suelta, nunca la entidad de un contexto de persistencia, y es de solo
+ * lectura: quien quiera modificar una sala la carga de la BD.
+ */
+@Component
+public class RoomCache {
+
+    private static final int MAX_ROOMS = 10_000;
+    private static final Duration IDLE = Duration.ofMinutes(30);
+
+    private final Cache<String, Room> byPin = Caffeine.newBuilder()
+            .maximumSize(MAX_ROOMS)
+            .expireAfterAccess(IDLE)
+            .build();
+    private final Cache<Long, String> pinById = Caffeine.newBuilder()
+            .maximumSize(MAX_ROOMS)
+            .expireAfterAccess(IDLE)
+            .build();
+
+    public Room get(String pin) {
+        return byPin.getIfPresent(pin);
+    }
+
+    public Room getById(Long id) {
+        String pin = pinById.getIfPresent(id);
+        return pin == null ? null : byPin.getIfPresent(pin);
+    }
+
+    // Sala recien guardada: siempre es la mas nueva. Dentro de una transaccion se publica
+    // tras el commit, asi un rollback no deja en la cache un estado que no existe
+    public void put(Room room) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    store(copyOf(room));
+                }
+            });
+        } else {
+            store(copyOf(room));
+        }
+    }
+
+    // Sala leida de la BD en un fallo de cache: no pisa una que haya guardado una transicion mientras tanto
+    public Room putIfAbsent(Room room) {
+        Room copy = copyOf(room);
+        Room current = byPin.asMap().putIfAbsent(copy.getPin(), copy);
+        pinById.asMap().putIfAbsent(copy.getId(), copy.getPin());
+        return current == null ? copy : current;
+    }
+
+    public void evict(Room room) {
+        evict(room.getPin(), room.getId());
+    }
+
+    // Se quita ya y otra vez tras el commit, por si alguien la ha vuelto a leer antes de borrarse
+    public void evict(String pin, Long roomId) {
+        remove(pin, roomId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    remove(pin, roomId);
+                }
+            });
+        }
+    }
+
+    private void store(Room room) {
+        byPin.put(room.getPin(), room);
+        pinById.put(room.getId(), room.getPin());
+    }
+
+    private void remove(String pin, Long roomId) {
+        byPin.invalidate(pin);
+        pinById.asMap().remove(roomId, pin);
+    }
+
+    // Copia de las columnas; host y bloque se comparten (tampoco se modifican desde aqui)
+    private static Room copyOf(Room room) {
+        Room copy = new Room();
+        copy.setId(room.getId());
+        copy.setPin(room.getPin());
+        copy.setHost(room.getHost());
+        copy.setBlock(room.getBlock());
+        copy.setQuestionCount(room.getQuestionCount());
+        copy.setSelectionMode(room.getSelectionMode());
+        copy.setTimePerQuestion(room.getTimePerQuestion());
+        copy.setAdvanceMode(room.getAdvanceMode());
+        copy.setState(room.getState());
+        copy.setCreatedAt(room.getCreatedAt());
+        copy.setLastActivityAt(room.getLastActivityAt());
+        copy.setCurrentQuestionIndex(room.getCurrentQuestionIndex());
+        copy.setQuestionStartedAt(room.getQuestionStartedAt());
+        copy.setPhase(room.getPhase());
+        copy.setPhaseStartedAt(room.getPhaseStartedAt());
+        copy.setStartedAt(room.getStartedAt());
+        copy.setFinishedAt(room.getFinishedAt());
+        return copy;
+    }
+}
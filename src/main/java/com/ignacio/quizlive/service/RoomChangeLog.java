@@ -0,0 +1,97 @@
+package com.ignacio.quizlive.service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Version de la sala y ultimos cambios por jugador (buffer circular) para responder al
+// lobby solo con lo que ha cambiado. Un cambio general (fase, pregunta...) obliga a
+// enviar el estado completo. Tambien despierta a quien espera un cambio de version
+// (peticiones largas del lobby).
+final class RoomChangeLog {
+
+    static final int CAPACITY = 512;
+    private static final long RESYNC = Long.MIN_VALUE;
+
+    private final long[] versions = new long[CAPACITY];
+    private final long[] players = new long[CAPACITY];
+    private int head;
+    private int size;
+    private long version;
+    private final List<Runnable> waiters = new ArrayList<>();
+
+    // empieza en el reloj para que un runtime reconstruido no repita versiones de antes de reiniciar
+    RoomChangeLog() {
+        this.version = System.currentTimeMillis();
+    }
+
+    synchronized long version() {
+        return version;
+    }
+
+    void playerChanged(long playerId) {
+        wake(append(playerId));
+    }
+
+    void resync() {
+        wake(append(RESYNC));
+    }
+
+    // 'wake' se ejecuta una sola vez cuando la version supere 'since' (al momento si ya la supera)
+    void await(long since, Runnable wake) {
+        synchronized (this) {
+            if (version <= since) {
+                waiters.add(wake);
+                return;
+            }
+        }
+        wake.run();
+    }
+
+    synchronized void cancel(Runnable wake) {
+        waiters.remove(wake);
+    }
+
+    // Jugadores cambiados despues de 'since'; null si hay que enviar todo
+    synchronized Set<Long> changedSince(long since) {
+        if (since > version) return null;
+        if (since == version) return Set.of();
+        if (size == 0 || versions[index(0)] > since + 1) return null;
+        Set<Long> changed = new HashSet<>();
+        for (int i = size - 1; i >= 0; i--) {
+            int idx = index(i);
+            if (versions[idx] <= since) break;
+            if (players[idx] == RESYNC) return null;
+            changed.add(players[idx]);
+        }
+        return changed;
+    }
+
+    // devuelve los que esperaban, para despertarlos fuera del cerrojo
+    private synchronized List<Runnable> append(long playerId) {
+        version++;
+        int idx = (head + size) % CAPACITY;
+        if (size == CAPACITY) {
+            head = (head + 1) % CAPACITY;
+        } else {
+            size++;
+        }
+        versions[idx] = version;
+        players[idx] = playerId;
+        if (waiters.isEmpty()) return List.of();
+        List<Runnable> woken = new ArrayList<>(waiters);
+        waiters.clear();
+        return woken;
+    }
+
+    private static void wake(List<Runnable> woken) {
+        for (Runnable r : woken) {
+            r.run();
+        }
+    }
+
+    private int index(int i) {
+        return (head + i) % CAPACITY;
+    }
+}
@@ -7,9 +7,11 @@ import org.springframework.stereotype.Component;
 public class RoomCleanupJob {
 
     private final RoomService roomService;
+    private final GameService gameService;
 
-    public RoomCleanupJob(RoomService roomService) {
+    public RoomCleanupJob(RoomService roomService, GameService gameService) {
         this.roomService = roomService;
+        this.gameService = gameService;
     }
 
     // cada 60 segundos
@@ -19,5 +21,18 @@ public class RoomCleanupJob {
         if (deleted > 0) {
             System.out.println("[Cleanup] Salas WAITING borradas por timeout: " + deleted);
         }
+        int adopted = gameService.adoptRunningRooms();
+        if (adopted > 0) {
+            System.out.println("[Cleanup] Salas RUNNING recuperadas: " + adopted);
+        }
+    }
+
+    // cada 5 segundos, solo memoria: presencia de los runtimes activos
+    @Scheduled(fixedRate = 5_000)
+    public void stopAbandonedRooms() {
+        int scheduled = gameService.stopAbandonedRooms(15);
+        if (scheduled > 0) {
+            System.out.println("[Cleanup] Salas sin jugadores activos, cierre programado: " + scheduled);
+        }
     }
 }
\ No newline at end of file
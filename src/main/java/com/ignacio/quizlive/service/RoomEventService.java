@@ -0,0 +1,269 @@
+package com.ignacio.quizlive.service;
+
+import com.ignacio.quizlive.model.RoomPhase;
+import com.ignacio.quizlive.model.RoomState;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Avisos SSE de cada sala. Los cambios de fase se envian al momento; el resto
+ * (respuestas, ranking, jugadores) se agrupa y sale como mucho una vez por TICK_MS,
+ * responda quien responda, y solo a los clientes que lo piden (el anfitrion).
+ * Los mismos eventos salen como tramas binarias por el WebSocket del anfitrion (HostSocketHub).
+ * Quien publica (el bucle de la sala) solo encola: cada cliente tiene su propio envio en un
+ * hilo virtual y guarda solo el ultimo evento pendiente, asi una conexion lenta no frena la sala.
+ */
+@Service
+public class RoomEventService {
+
+    public static final String STARTED = "started";
+    public static final String QUESTION = "question";
+    public static final String RESULTS = "results";
+    public static final String FINISHED = "finished";
+    public static final String UPDATE = "update";
+    // la sala ya no existe (borrada o caducada)
+    public static final String CLOSED = "closed";
+
+    // como mucho 4 avisos de progreso por segundo y sala
+    private static final long TICK_MS = 250;
+
+    private static final long EMITTER_TIMEOUT_MS = 30 * 60 * 1000L;
+    private static final Logger logger = LoggerFactory.getLogger(RoomEventService.class);
+
+    // PIN -> clientes suscritos a los cambios de la sala
+    private final ConcurrentHashMap<String, List<Subscriber>> emitters = new ConcurrentHashMap<>();
+    // salas con cambios pendientes de avisar en el siguiente tick
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+    private final List<Consumer<String>> closeListeners = new CopyOnWriteArrayList<>();
+    private final HostSocketHub hostSocketHub;
+    // un envio por cliente a la vez, cada uno en su hilo virtual
+    private final ExecutorService senders =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("sse-", 1).factory());
+
+    public RoomEventService(HostSocketHub hostSocketHub) {
+        this.hostSocketHub = hostSocketHub;
+    }
+
+    // Jugadores: solo cambios de fase
+    public SseEmitter subscribe(String pin) {
+        return subscribe(pin, false);
+    }
+
+    public SseEmitter subscribe(String pin, boolean updates) {
+        SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT_MS);
+        Subscriber subscriber = new Subscriber(pin, emitter, updates);
+        // alta dentro de compute: no puede caer en una lista que remove acaba de quitar por vacia
+        emitters.compute(pin, (k, list) -> {
+            if (list == null) list = new CopyOnWriteArrayList<>();
+            list.add(subscriber);
+            return list;
+        });
+        emitter.onCompletion(() -> remove(pin, subscriber));
+        emitter.onTimeout(() -> remove(pin, subscriber));
+        emitter.onError(ex -> remove(pin, subscriber));
+        deliver(subscriber, new Pending(SseEmitter.event().name("ready").data(Map.of("pin", pin)).build(), false));
+        return emitter;
+    }
+
+    // Cambio que no es de fase: no se envia ahora, se marca para el siguiente tick
+    public void changed(String pin) {
+        if (emitters.containsKey(pin)) {
+            dirty.add(pin);
+        }
+    }
+
+    // Jugador que entra o cambia de estado (presencia)
+    public void playerChanged(String pin, long playerId, String name, String status) {
+        changed(pin);
+        hostSocketHub.enqueue(pin, HostFrames.player(playerId, name, status));
+    }
+
+    public void playerLeft(String pin, long playerId) {
+        changed(pin);
+        hostSocketHub.enqueue(pin, HostFrames.left(playerId));
+    }
+
+    // score: null si la respuesta no puntua todavia (modo MANUAL)
+    public void answerReceived(String pin, long playerId, boolean correct, Integer score) {
+        changed(pin);
+        hostSocketHub.enqueue(pin, HostFrames.answer(playerId, correct));
+        if (score != null) {
+            hostSocketHub.enqueue(pin, HostFrames.score(playerId, score));
+        }
+    }
+
+    // Cambio de fase: aviso SSE y trama al momento; endsAt en epoch ms, 0 si no hay plazo
+    public void phaseChanged(String pin, String type, RoomState state, RoomPhase phase, int questionIndex, long endsAt) {
+        publish(pin, type);
+        hostSocketHub.sendNow(pin, HostFrames.phase(state, phase, questionIndex, endsAt));
+        if (FINISHED.equals(type)) {
+            hostSocketHub.close(pin);
+        }
+    }
+
+    // Pregunta vencida en modo MANUAL: no cambia la fase, pero el anfitrion debe refrescar
+    public void timeUp(String pin, RoomState state, RoomPhase phase, int questionIndex) {
+        changed(pin);
+        hostSocketHub.sendNow(pin, HostFrames.phase(state, phase, questionIndex, 0));
+    }
+
+    @Scheduled(fixedRate = TICK_MS)
+    public void tick() {
+        if (dirty.isEmpty()) return;
+        for (String pin : dirty) {
+            if (dirty.remove(pin)) {
+                send(pin, UPDATE);
+            }
+        }
+    }
+
+    public void publish(String pin, String type) {
+        afterCommit(() -> send(pin, type));
+    }
+
+    // Sala borrada o caducada: aviso final a jugadores y anfitrion, y se cierran SSE, WebSocket
+    // y espectadores. Con transaccion abierta, cuando el borrado ya es visible en BD
+    public void roomClosed(String pin) {
+        afterCommit(() -> {
+            send(pin, CLOSED);
+            hostSocketHub.close(pin, HostSocketHub.ROOM_CLOSED);
+            for (Consumer<String> listener : closeListeners) {
+                listener.accept(pin);
+            }
+        });
+    }
+
+    // Otros servicios con clientes por PIN (espectadores) se enteran aqui del cierre
+    public void onRoomClosed(Consumer<String> listener) {
+        closeListeners.add(listener);
+    }
+
+    private static void afterCommit(Runnable action) {
+        // si hay transaccion abierta, avisar solo cuando el cambio ya es visible en BD
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        senders.shutdownNow();
+    }
+
+    // Se cierra cada stream despues de su ultimo evento pendiente (el FINISHED)
+    private void close(String pin) {
+        dirty.remove(pin);
+        List<Subscriber> list = emitters.remove(pin);
+        if (list == null) return;
+        for (Subscriber subscriber : list) {
+            subscriber.closeAfterSend = true;
+            if (subscriber.sending.compareAndSet(false, true)) {
+                senders.execute(() -> drain(subscriber));
+            }
+        }
+    }
+
+    private void send(String pin, String type) {
+        boolean update = UPDATE.equals(type);
+        if (!update) {
+            // el cambio de fase ya obliga a refrescar todo: el progreso pendiente sobra
+            dirty.remove(pin);
+        }
+        List<Subscriber> list = emitters.get(pin);
+        if (list == null || list.isEmpty()) return;
+        logger.debug("[Room {}] Evento {} a {} clientes", pin, type, list.size());
+        Pending event = new Pending(SseEmitter.event().name(update ? UPDATE : "state").data(Map.of("type", type)).build(), update);
+        for (Subscriber subscriber : list) {
+            if (update && !subscriber.updates) continue;
+            deliver(subscriber, event);
+        }
+        if (FINISHED.equals(type) || CLOSED.equals(type)) {
+            close(pin);
+        }
+    }
+
+    private void remove(String pin, Subscriber subscriber) {
+        emitters.computeIfPresent(pin, (k, list) -> {
+            list.remove(subscriber);
+            return list.isEmpty() ? null : list;
+        });
+    }
+
+    // Un aviso de progreso no pisa un cambio de fase pendiente; un cambio de fase pisa lo que haya
+    private void deliver(Subscriber subscriber, Pending event) {
+        subscriber.next.getAndUpdate(current ->
+                event.update() && current != null && !current.update() ? current : event);
+        if (subscriber.sending.compareAndSet(false, true)) {
+            senders.execute(() -> drain(subscriber));
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        while (true) {
+            Pending event = subscriber.next.getAndSet(null);
+            if (event == null) {
+                if (subscriber.closeAfterSend) {
+                    subscriber.emitter.complete();
+                    return;
+                }
+                subscriber.sending.set(false);
+                // algo llego justo despues de vaciar: seguir si nadie mas lo ha cogido
+                if (subscriber.next.get() == null || !subscriber.sending.compareAndSet(false, true)) return;
+                continue;
+            }
+            try {
+                subscriber.emitter.send(event.event());
+            } catch (IOException | IllegalStateException ex) {
+                // fuera de la sala y sending queda a true: no se le vuelve a enviar nada
+                remove(subscriber.pin, subscriber);
+                return;
+            }
+        }
+    }
+
+    // evento ya construido: el mismo Set se envia a todos los clientes
+    private record Pending(Set<ResponseBodyEmitter.DataWithMediaType> event, boolean update) {
+    }
+
+    private static final class Subscriber {
+        final String pin;
+        final SseEmitter emitter;
+        final boolean updates;
+        final AtomicReference<Pending> next = new AtomicReference<>();
+        final AtomicBoolean sending = new AtomicBoolean(false);
+        // sala terminada: cerrar el stream despues de enviar lo pendiente
+        volatile boolean closeAfterSend;
+
+        Subscriber(String pin, SseEmitter emitter, boolean updates) {
+            this.pin = pin;
+            this.emitter = emitter;
+            this.updates = updates;
+        }
+    }
+}
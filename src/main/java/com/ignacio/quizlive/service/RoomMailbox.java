@@ -0,0 +1,80 @@
+package com.ignacio.quizlive.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Cola de ordenes de una sala: se ejecutan de una en una, en orden de llegada,
+// sobre un executor compartido por todas las salas
+final class RoomMailbox {
+
+    static final int MAX_BATCH = 64;
+    private static final Logger logger = LoggerFactory.getLogger(RoomMailbox.class);
+
+    private final String pin;
+    private final Executor executor;
+    private final ConcurrentLinkedQueue<Runnable> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    RoomMailbox(String pin, Executor executor) {
+        this.pin = pin;
+        this.executor = executor;
+    }
+
+    void execute(Runnable command) {
+        queue.add(command);
+        schedule();
+    }
+
+    CompletableFuture<Void> submit(Runnable command) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        execute(() -> {
+            try {
+                command.run();
+                result.complete(null);
+            } catch (Throwable ex) {
+                // tambien los Error: quien espera en join() no puede quedarse colgado
+                result.completeExceptionally(ex);
+            }
+        });
+        return result;
+    }
+
+    private void schedule() {
+        if (running.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException ex) {
+                running.set(false);
+                throw ex;
+            }
+        }
+    }
+
+    // como mucho MAX_BATCH ordenes por turno para no acaparar el executor
+    private void drain() {
+        try {
+            for (int i = 0; i < MAX_BATCH; i++) {
+                Runnable command = queue.poll();
+                if (command == null) break;
+                try {
+                    command.run();
+                } catch (RuntimeException ex) {
+                    logger.warn("[Room {}] [{}] Error en orden de la sala: {}", pin, Thread.currentThread().getName(), ex.getMessage());
+                } catch (Throwable ex) {
+                    logger.error("[Room {}] [{}] Fallo grave en orden de la sala", pin, Thread.currentThread().getName(), ex);
+                }
+            }
+        } finally {
+            running.set(false);
+            if (!queue.isEmpty()) {
+                schedule();
+            }
+        }
+    }
+}
@@ -19,32 +19,49 @@ public class RoomService {
     private final RoomQuestionRepository roomQuestionRepository;
     private final com.ignacio.quizlive.repository.PlayerRepository playerRepository;
     private final com.ignacio.quizlive.repository.AnswerRepository answerRepository;
+    private final GameService gameService;
+    private final RoomCache roomCache;
+    private final BlockQuestionCache blockQuestionCache;
     private final SecureRandom random = new SecureRandom();
 
     public RoomService(RoomRepository roomRepository,
                        RoomQuestionRepository roomQuestionRepository,
                        com.ignacio.quizlive.repository.PlayerRepository playerRepository,
-                       com.ignacio.quizlive.repository.AnswerRepository answerRepository) {
+                       com.ignacio.quizlive.repository.AnswerRepository answerRepository,
+                       GameService gameService,
+                       RoomCache roomCache,
+                       BlockQuestionCache blockQuestionCache) {
         this.roomRepository = roomRepository;
         this.roomQuestionRepository = roomQuestionRepository;
         this.playerRepository = playerRepository;
         this.answerRepository = answerRepository;
+        this.gameService = gameService;
+        this.roomCache = roomCache;
+        this.blockQuestionCache = blockQuestionCache;
     }
 
     public List<Room> myRooms(User host) {
         return roomRepository.findByHost(host);
     }
 
+    public List<com.ignacio.quizlive.repository.RoomStatusView> myRoomStatuses(User host) {
+        return roomRepository.findStatusByHost(host);
+    }
+
+    // Las peticiones de los jugadores llegan todas por PIN: la sala sale de RoomCache y solo
+    // el primer acceso (o tras reiniciar) va a la BD. La sala devuelta es de solo lectura.
     public Room getByPin(String pin) {
-        return roomRepository.findByPin(pin)
-                .orElseThrow(() -> new RuntimeException("PIN no valido"));
+        Room cached = roomCache.get(pin);
+        if (cached != null) return cached;
+        return roomCache.putIfAbsent(roomRepository.findByPin(pin)
+                .orElseThrow(() -> new RuntimeException("PIN no valido")));
     }
 
     public Room createRoom(User host, Block block, int questionCount, int timePerQuestion, SelectionMode mode, AdvanceMode advanceMode) {
         if (host == null) throw new RuntimeException("Host obligatorio");
         if (block == null) throw new RuntimeException("Bloque obligatorio");
 
-        int total = (block.getQuestions() == null) ? 0 : block.getQuestions().size();
+        int total = blockQuestionCache.get(block).size();
         if (total < 20) {
             throw new RuntimeException("El bloque debe tener al menos 20 preguntas para crear una sala");
         }
@@ -76,6 +93,7 @@ public class RoomService {
         room.setLastActivityAt(now);
 
         Room saved = roomRepository.save(room);
+        roomCache.put(saved);
 
         if (mode == SelectionMode.RANDOM) {
             assignRandomQuestions(saved);
@@ -98,6 +116,20 @@ public class RoomService {
         return room;
     }
 
+    // Igual que getMyRoomById pero desde RoomCache, para las consultas frecuentes del anfitrion
+    // (estado, eventos). No sirve para modificar la sala ni para leer su bloque.
+    public Room getMyRoomStatusById(User host, Long roomId) {
+        Room room = roomCache.getById(roomId);
+        if (room == null) {
+            room = roomCache.putIfAbsent(roomRepository.findById(roomId)
+                    .orElseThrow(() -> new RuntimeException("Sala no encontrada")));
+        }
+        if (host == null || room.getHost() == null || !room.getHost().getId().equals(host.getId())) {
+            throw new RuntimeException("No tienes permiso para acceder a esta sala");
+        }
+        return room;
+    }
+
     private String generateUniquePin() {
         for (int i = 0; i < 20; i++) {
             String pin = String.valueOf(100000 + random.nextInt(900000));
@@ -119,7 +151,7 @@ public class RoomService {
         for (int i = 0; i < questionIdsInOrder.size(); i++) {
             Long qid = questionIdsInOrder.get(i);
 
-            Question q = room.getBlock().getQuestions().stream()
+            Question q = blockQuestionCache.get(room.getBlock()).stream()
                     .filter(qq -> qq.getId().equals(qid))
                     .findFirst()
                     .orElseThrow(() -> new RuntimeException("Pregunta no pertenece al bloque"));
@@ -133,14 +165,14 @@ public class RoomService {
         }
 
         room.setLastActivityAt(LocalDateTime.now());
-        roomRepository.save(room);
+        roomCache.put(roomRepository.save(room));
     }
 
     @Transactional
     public void assignRandomQuestions(Room room) {
         roomQuestionRepository.deleteByRoom(room);
 
-        List<Question> all = new ArrayList<>(room.getBlock().getQuestions());
+        List<Question> all = new ArrayList<>(blockQuestionCache.get(room.getBlock()));
         Collections.shuffle(all, random);
 
         for (int i = 0; i < room.getQuestionCount(); i++) {
@@ -152,7 +184,7 @@ public class RoomService {
         }
 
         room.setLastActivityAt(LocalDateTime.now());
-        roomRepository.save(room);
+        roomCache.put(roomRepository.save(room));
     }
 
     public boolean hasSelection(Room room) {
@@ -166,6 +198,8 @@ public class RoomService {
     @Transactional
     public void deleteMyRoom(User host, Long roomId) {
         Room room = getMyRoomById(host, roomId);
+        gameService.discardRuntime(room);
+        roomCache.evict(room);
         answerRepository.deleteByRoomQuestionRoom(room);
         playerRepository.deleteByRoom(room);
         roomQuestionRepository.deleteByRoom(room);
@@ -176,6 +210,8 @@ public class RoomService {
     public void deleteAllMyRooms(User host) {
         List<Room> rooms = roomRepository.findByHost(host);
         for (Room room : rooms) {
+            gameService.discardRuntime(room);
+            roomCache.evict(room);
             answerRepository.deleteByRoomQuestionRoom(room);
             playerRepository.deleteByRoom(room);
             roomQuestionRepository.deleteByRoom(room);
@@ -189,6 +225,8 @@ public class RoomService {
         List<Room> expired = roomRepository.findByStateAndLastActivityAtBefore(RoomState.WAITING, limit);
 
         for (Room r : expired) {
+            gameService.discardRuntime(r);
+            roomCache.evict(r);
             roomQuestionRepository.deleteByRoom(r);
             roomRepository.delete(r);
         }
@@ -199,6 +237,8 @@ public class RoomService {
     public void expireRoomNow(User host, Long roomId) {
         Room room = getMyRoomById(host, roomId);
         if (room.getState() == RoomState.WAITING) {
+            gameService.discardRuntime(room);
+            roomCache.evict(room);
             roomQuestionRepository.deleteByRoom(room);
             roomRepository.delete(room);
         }
@@ -0,0 +1,42 @@
+package com.ignacio.quizlive.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Temporizadores de todas las salas: pocos hilos compartidos en lugar de uno por sala
+@Component
+public class RoomTimerService {
+
+    private static final int TIMER_THREADS = 2;
+
+    private final ScheduledThreadPoolExecutor timer;
+    // la accion del temporizador toca BD: se ejecuta aparte para no retrasar otros vencimientos
+    private final ExecutorService workers;
+
+    public RoomTimerService() {
+        this.timer = new ScheduledThreadPoolExecutor(TIMER_THREADS, new NamedThreadFactory("room-timer"));
+        this.timer.setRemoveOnCancelPolicy(true);
+        this.workers = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("room-timer-worker-", 1).factory());
+    }
+
+    // cancel(false) sobre el resultado evita la accion si aun no ha vencido
+    public ScheduledFuture<?> schedule(Runnable action, long delay, TimeUnit unit) {
+        return timer.schedule(() -> workers.execute(action), delay, unit);
+    }
+
+    public int pendingTimers() {
+        return timer.getQueue().size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+        workers.shutdownNow();
+    }
+}
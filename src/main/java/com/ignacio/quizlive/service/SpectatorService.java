@@ -0,0 +1,209 @@
+package com.ignacio.quizlive.service;
+
+import com.ignacio.quizlive.model.Room;
+import com.ignacio.quizlive.model.RoomState;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Espectadores de solo lectura por PIN (/watch/{pin}). Cada TICK_MS se mira la version de
+ * las salas con espectadores; si ha cambiado se construye y serializa una sola instantanea
+ * y el mismo evento SSE se envia a todos. Un espectador lento no frena a los demas: solo
+ * recibe la ultima instantanea pendiente.
+ */
+@Service
+public class SpectatorService {
+
+    private static final long TICK_MS = 250;
+    private static final long EMITTER_TIMEOUT_MS = 60 * 60 * 1000L;
+    private static final int RANKING_SIZE = 10;
+    private static final Logger logger = LoggerFactory.getLogger(SpectatorService.class);
+
+    private final GameService gameService;
+    private final ConcurrentHashMap<String, Channel> channels = new ConcurrentHashMap<>();
+    // un envio por espectador a la vez, cada uno en su hilo virtual
+    private final ExecutorService senders =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("watch-", 1).factory());
+
+    public SpectatorService(GameService gameService, RoomEventService roomEventService) {
+        this.gameService = gameService;
+        roomEventService.onRoomClosed(this::close);
+    }
+
+    public SseEmitter subscribe(Room room) {
+        SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT_MS);
+        Viewer viewer = new Viewer(room.getPin(), emitter);
+        if (room.getState() == RoomState.FINISHED) {
+            viewer.closeAfterSend = true;
+            deliver(viewer, event(finalView(room)));
+            return emitter;
+        }
+        // alta dentro de compute: no puede caer en un canal que remove acaba de quitar por vacio
+        Channel channel = channels.compute(room.getPin(), (k, current) -> {
+            Channel c = current == null ? new Channel() : current;
+            c.viewers.add(viewer);
+            return c;
+        });
+        emitter.onCompletion(() -> remove(room.getPin(), viewer));
+        emitter.onTimeout(() -> remove(room.getPin(), viewer));
+        emitter.onError(ex -> remove(room.getPin(), viewer));
+        // el recien llegado recibe la ultima instantanea ya serializada, si la hay
+        Set<ResponseBodyEmitter.DataWithMediaType> last = channel.lastEvent;
+        if (last != null) {
+            deliver(viewer, last);
+        }
+        return emitter;
+    }
+
+    @Scheduled(fixedRate = TICK_MS)
+    public void tick() {
+        channels.forEach((pin, channel) -> {
+            Map<String, Object> view = gameService.spectatorView(pin, RANKING_SIZE);
+            if (view == null) {
+                // sin runtime: si habia partida, ha terminado
+                if (channel.lastView != null) finish(pin, channel);
+                return;
+            }
+            long version = (Long) view.get("version");
+            if (channel.lastEvent != null && version == channel.lastVersion) return;
+            Set<ResponseBodyEmitter.DataWithMediaType> event = event(view);
+            channel.lastVersion = version;
+            channel.lastView = view;
+            channel.lastEvent = event;
+            for (Viewer viewer : channel.viewers) {
+                deliver(viewer, event);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        senders.shutdownNow();
+    }
+
+    // Ultima vista conocida marcada como terminada; despues se cierran los espectadores
+    private void finish(String pin, Channel channel) {
+        channels.remove(pin, channel);
+        Map<String, Object> view = new HashMap<>(channel.lastView);
+        view.put("state", RoomState.FINISHED.name());
+        view.remove("phase");
+        view.remove("question");
+        view.remove("questionEndsAt");
+        view.remove("resultEndsAt");
+        Set<ResponseBodyEmitter.DataWithMediaType> event = event(view);
+        for (Viewer viewer : channel.viewers) {
+            viewer.closeAfterSend = true;
+            deliver(viewer, event);
+        }
+    }
+
+    // Sala borrada: ultimo aviso y se cierran los espectadores
+    private void close(String pin) {
+        Channel channel = channels.remove(pin);
+        if (channel == null) return;
+        Set<ResponseBodyEmitter.DataWithMediaType> event =
+                event(Map.of("state", "CLOSED", "serverNow", System.currentTimeMillis()));
+        for (Viewer viewer : channel.viewers) {
+            viewer.closeAfterSend = true;
+            deliver(viewer, event);
+        }
+    }
+
+    private Map<String, Object> finalView(Room room) {
+        Map<String, Object> view = new HashMap<>();
+        view.put("state", RoomState.FINISHED.name());
+        view.put("questionCount", room.getQuestionCount());
+        view.put("ranking", gameService.getRanking(room).stream()
+                .limit(RANKING_SIZE)
+                .map(e -> Map.of("name", e.getName(), "score", e.getScore()))
+                .toList());
+        view.put("serverNow", System.currentTimeMillis());
+        return view;
+    }
+
+    // El JSON se serializa aqui una vez; el evento ya construido se reutiliza para todos
+    private static Set<ResponseBodyEmitter.DataWithMediaType> event(Map<String, Object> view) {
+        String json = JsonMapper.shared().writeValueAsString(view);
+        return SseEmitter.event().name("snapshot").data(json, MediaType.APPLICATION_JSON).build();
+    }
+
+    private void deliver(Viewer viewer, Set<ResponseBodyEmitter.DataWithMediaType> event) {
+        viewer.next.set(event);
+        if (viewer.sending.compareAndSet(false, true)) {
+            senders.execute(() -> drain(viewer));
+        }
+    }
+
+    private void drain(Viewer viewer) {
+        while (true) {
+            Set<ResponseBodyEmitter.DataWithMediaType> event = viewer.next.getAndSet(null);
+            if (event == null) {
+                if (viewer.closeAfterSend) {
+                    viewer.emitter.complete();
+                    return;
+                }
+                viewer.sending.set(false);
+                // algo llego justo despues de vaciar: seguir si nadie mas lo ha cogido
+                if (viewer.next.get() == null || !viewer.sending.compareAndSet(false, true)) return;
+                continue;
+            }
+            try {
+                viewer.emitter.send(event);
+            } catch (IOException | IllegalStateException ex) {
+                logger.debug("[Watch] Espectador desconectado: {}", ex.getMessage());
+                // fuera del canal y sending queda a true: no se le vuelve a enviar nada
+                remove(viewer.pin, viewer);
+                viewer.emitter.completeWithError(ex);
+                return;
+            }
+        }
+    }
+
+    private void remove(String pin, Viewer viewer) {
+        channels.computeIfPresent(pin, (k, channel) -> {
+            channel.viewers.remove(viewer);
+            return channel.viewers.isEmpty() ? null : channel;
+        });
+    }
+
+    private static final class Channel {
+        final List<Viewer> viewers = new CopyOnWriteArrayList<>();
+        // solo el tick escribe estos campos
+        volatile long lastVersion;
+        volatile Map<String, Object> lastView;
+        volatile Set<ResponseBodyEmitter.DataWithMediaType> lastEvent;
+    }
+
+    private static final class Viewer {
+        final String pin;
+        final SseEmitter emitter;
+        final AtomicReference<Set<ResponseBodyEmitter.DataWithMediaType>> next = new AtomicReference<>();
+        final AtomicBoolean sending = new AtomicBoolean(false);
+        // ultima instantanea (sala terminada): cerrar el stream despues de enviarla
+        volatile boolean closeAfterSend;
+
+        Viewer(String pin, SseEmitter emitter) {
+            this.pin = pin;
+            this.emitter = emitter;
+        }
+    }
+}
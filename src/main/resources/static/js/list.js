@@ -56,41 +56,26 @@
     el.addEventListener("change", applyFilters);
   });
 
-  async function refreshStates() {
-    const rows = Array.from(document.querySelectorAll("[data-room-id]"));
-    await Promise.all(
-      rows.map(async (row) => {
-        const id = parseInt(row.dataset.roomId, 10);
-        if (!id) return;
-        try {
-          const res = await fetch(`/rooms/${id}/status`, { credentials: "same-origin" });
-          if (!res.ok) return;
-          const data = await res.json();
-          if (!data?.state) return;
-          row.dataset.state = data.state;
-          const label = row.querySelector("[data-state-label]");
-          if (label) label.textContent = stateLabel(data.state);
-        } catch (e) {
-          console.error("Error actualizando estado de sala", e);
-        }
-      })
-    );
-  }
-
+  // Una sola peticion con el estado de todas las salas del anfitrion
   setInterval(async () => {
     try {
-      const res = await fetch("/rooms/api/my", { credentials: "same-origin" });
-      const ids = await res.json();
+      const res = await fetch("/rooms/api/my/status", { credentials: "same-origin" });
+      if (!res.ok) return;
+      const statuses = await res.json();
+      const byId = new Map(statuses.map((s) => [s.id, s]));
 
       document.querySelectorAll("[data-room-id]").forEach((row) => {
         const id = parseInt(row.dataset.roomId, 10);
-        if (!ids.includes(id)) {
+        const status = byId.get(id);
+        if (!status) {
           row.remove();
+          return;
         }
+        row.dataset.state = status.state;
+        const label = row.querySelector("[data-state-label]");
+        if (label) label.textContent = stateLabel(status.state);
       });
 
-      await refreshStates();
-
       const cards = document.getElementById("rooms-cards");
       const tableWrap = document.getElementById("rooms-table-wrap");
       const emptyMsg = document.getElementById("empty-msg");
@@ -24,7 +24,42 @@
   const rankingBody = document.getElementById("ranking-body");
   let questionEndsAt = null;
   let questionSecondsFallback = null;
+  let expiresAt = null;
   let clockOffset = 0;
+  let statusEtag = null;
+  // cada cuanto volver a consultar segun el servidor; 0 = sala terminada
+  let nextPollMs = null;
+  // estado acumulado: respuesta completa o cambios desde lastVersion
+  let lastVersion = null;
+  const playersById = new Map();
+  const rankingById = new Map();
+
+  function applyPlayers(data) {
+    if (!data.delta) {
+      playersById.clear();
+      rankingById.clear();
+    }
+    (data.left || []).forEach((id) => {
+      playersById.delete(id);
+      rankingById.delete(id);
+    });
+    (data.players || []).forEach((p) => playersById.set(p.id, p));
+    (data.ranking || []).forEach((p) => rankingById.set(p.id, p));
+  }
+
+  function sortedPlayers() {
+    return Array.from(playersById.values()).sort((a, b) => Number(a.id) - Number(b.id));
+  }
+
+  // mismo orden que el servidor: puntos desc, nombre asc, id
+  function sortedRanking() {
+    return Array.from(rankingById.values()).sort((a, b) => {
+      if (b.score !== a.score) return b.score - a.score;
+      const byName = a.name.toLowerCase().localeCompare(b.name.toLowerCase());
+      if (byName !== 0) return byName;
+      return Number(a.id) - Number(b.id);
+    });
+  }
 
   function nowMs() {
     return Date.now() + clockOffset;
@@ -42,6 +77,11 @@
     }
   }
 
+  function updateCountdown() {
+    if (!countdownEl || expiresAt == null) return;
+    countdownEl.textContent = format((expiresAt - nowMs()) / 1000);
+  }
+
   function setStateSections(state) {
     if (startSection) startSection.style.display = state === "WAITING" ? "block" : "none";
     if (runningSection) runningSection.style.display = state === "RUNNING" ? "block" : "none";
@@ -85,6 +125,30 @@
     });
   }
 
+  function renderRanking() {
+    if (!rankingBody || !rankingEmpty || !rankingTable) return;
+    const ranking = sortedRanking();
+    rankingBody.innerHTML = "";
+    if (ranking.length === 0) {
+      rankingEmpty.style.display = "block";
+      rankingTable.style.display = "none";
+      return;
+    }
+    rankingEmpty.style.display = "none";
+    rankingTable.style.display = "table";
+    ranking.forEach((p) => {
+      const tr = document.createElement("tr");
+      const tdName = document.createElement("td");
+      const tdScore = document.createElement("td");
+      tdName.textContent = p.name;
+      tdScore.textContent = p.score;
+      tdScore.className = "text-right";
+      tr.appendChild(tdName);
+      tr.appendChild(tdScore);
+      rankingBody.appendChild(tr);
+    });
+  }
+
   function format(totalSeconds) {
     const s = Math.max(0, Math.floor(totalSeconds));
     const m = Math.floor(s / 60);
@@ -101,15 +165,26 @@
 
   async function poll() {
     try {
-      const res = await fetch(`/rooms/${roomId}/status`, { credentials: "same-origin" });
+      const since = lastVersion != null ? `?since=${lastVersion}` : "";
+      const res = await fetch(`/rooms/${roomId}/status${since}`, {
+        credentials: "same-origin",
+        cache: "no-store",
+        headers: statusEtag ? { "If-None-Match": statusEtag } : {},
+      });
+      // 304: la sala no ha cambiado; los contadores siguen en local
+      if (res.status === 304) return;
       if (!res.ok) return;
       const data = await res.json();
+      statusEtag = res.headers.get("ETag");
+      if (data.nextPollMs != null) nextPollMs = data.nextPollMs;
+      lastVersion = data.version != null ? data.version : null;
+      applyPlayers(data);
 
       if (stateEl) stateEl.textContent = stateLabel(data.state);
       setStateSections(data.state);
-      renderPlayers(data.players || []);
+      renderPlayers(sortedPlayers());
       if (startBtn) {
-        const hasPlayers = Array.isArray(data.players) && data.players.length > 0;
+        const hasPlayers = playersById.size > 0;
         if (hasPlayers) {
           startBtn.disabled = false;
           startBtn.removeAttribute("disabled");
@@ -119,7 +194,14 @@
         }
       }
 
-      if (countdownEl && data.secondsLeft != null) {
+      if (data.serverNow != null) {
+        clockOffset = data.serverNow - Date.now();
+      }
+
+      expiresAt = data.expiresAt != null ? data.expiresAt : null;
+      if (expiresAt != null) {
+        updateCountdown();
+      } else if (countdownEl && data.secondsLeft != null) {
         countdownEl.textContent = format(data.secondsLeft);
       }
 
@@ -131,10 +213,6 @@
         currentAnswerEl.textContent = "-";
       }
 
-      if (data.serverNow != null) {
-        clockOffset = data.serverNow - Date.now();
-      }
-
       if (data.phase === "QUESTION") {
         if (data.questionEndsAt != null) {
           questionEndsAt = data.questionEndsAt;
@@ -148,28 +226,7 @@
         questionSecondsFallback = null;
       }
 
-      if (rankingBody && rankingEmpty && rankingTable) {
-        const ranking = data.ranking || [];
-        rankingBody.innerHTML = "";
-        if (ranking.length === 0) {
-          rankingEmpty.style.display = "block";
-          rankingTable.style.display = "none";
-        } else {
-          rankingEmpty.style.display = "none";
-          rankingTable.style.display = "table";
-          ranking.forEach((p) => {
-            const tr = document.createElement("tr");
-            const tdName = document.createElement("td");
-            const tdScore = document.createElement("td");
-            tdName.textContent = p.name;
-            tdScore.textContent = p.score;
-            tdScore.className = "text-right";
-            tr.appendChild(tdName);
-            tr.appendChild(tdScore);
-            rankingBody.appendChild(tr);
-          });
-        }
-      }
+      renderRanking();
 
       if (btnShowResults && btnForceResults && btnNextQuestion) {
         const phase = data.phase;
@@ -201,7 +258,221 @@
     }
   }
 
-  poll();
-  setInterval(poll, 2000);
-  setInterval(updateQuestionTimer, 250);
+  // Con SSE el servidor avisa de fases al momento y del progreso como mucho 4 veces por segundo;
+  // el sondeo queda como respaldo
+  const POLL_MS = 2000;
+  const POLL_WITH_EVENTS_MS = 5000;
+  const POLL_JITTER_MS = 200;
+  let eventsOpen = false;
+  let polling = false;
+  let pollAgain = false;
+  // tramas del WebSocket recibidas durante un sondeo: se aplican despues, sobre su resultado
+  let heldFrames = [];
+
+  // un solo sondeo a la vez: los avisos que llegan mientras tanto se juntan en uno
+  async function refresh() {
+    if (polling) {
+      pollAgain = true;
+      return;
+    }
+    polling = true;
+    try {
+      do {
+        pollAgain = false;
+        await poll();
+      } while (pollAgain);
+    } finally {
+      polling = false;
+      const held = heldFrames;
+      heldFrames = [];
+      held.forEach(applyFrames);
+    }
+  }
+
+  // WebSocket binario (HostFrames en el servidor): jugadores, respuestas y puntos llegan
+  // como tramas de pocos bytes y se aplican sobre el estado en memoria sin pedir /status
+  const STATUSES = ["blank", "correct", "wrong", "inactive", "finished"];
+  const SOCKET_RETRY_MS = 3000;
+  const decoder = new TextDecoder();
+  let socketOpen = false;
+
+  function applyFrames(buffer) {
+    const view = new DataView(buffer);
+    let off = 0;
+    let phaseChanged = false;
+    while (off < view.byteLength) {
+      const type = view.getUint8(off);
+      off += 1;
+      if (type === 5) {
+        // PHASE: estado, fase, pregunta y plazo; el enunciado y el ranking completo van por /status
+        off += 1 + 1 + 2 + 8;
+        phaseChanged = true;
+        continue;
+      }
+      const id = String(view.getBigInt64(off));
+      off += 8;
+      if (type === 1) {
+        const status = STATUSES[view.getUint8(off)] || "blank";
+        const len = view.getUint16(off + 1);
+        off += 3;
+        const name = decoder.decode(new Uint8Array(buffer, off, len));
+        off += len;
+        playersById.set(id, { id, name, status });
+      } else if (type === 2) {
+        playersById.delete(id);
+        rankingById.delete(id);
+      } else if (type === 3) {
+        const correct = view.getUint8(off) === 1;
+        off += 1;
+        const p = playersById.get(id);
+        if (p) playersById.set(id, { ...p, status: correct ? "correct" : "wrong" });
+      } else if (type === 4) {
+        const score = view.getInt32(off);
+        off += 4;
+        const p = playersById.get(id);
+        const r = rankingById.get(id);
+        rankingById.set(id, { id, name: r ? r.name : p ? p.name : "", score });
+      } else {
+        // tipo desconocido: no se puede seguir leyendo; el siguiente sondeo corrige
+        phaseChanged = true;
+        break;
+      }
+    }
+    renderPlayers(sortedPlayers());
+    renderRanking();
+    if (phaseChanged) refresh();
+  }
+
+  // La sala se ha borrado (o ha caducado): no hay nada mas que refrescar
+  const ROOM_CLOSED_CODE = 4001;
+
+  function roomClosed() {
+    nextPollMs = 0;
+    window.location.href = "/rooms";
+  }
+
+  function connectSocket() {
+    if (!window.WebSocket || nextPollMs === 0) return;
+    const scheme = window.location.protocol === "https:" ? "wss" : "ws";
+    const socket = new WebSocket(`${scheme}://${window.location.host}/rooms/${roomId}/ws`);
+    socket.binaryType = "arraybuffer";
+    socket.addEventListener("open", () => {
+      socketOpen = true;
+      // estado completo una vez; desde aqui solo tramas
+      refresh();
+    });
+    socket.addEventListener("message", (ev) => {
+      if (polling) {
+        heldFrames.push(ev.data);
+      } else {
+        applyFrames(ev.data);
+      }
+    });
+    socket.addEventListener("close", (ev) => {
+      socketOpen = false;
+      if (ev.code === ROOM_CLOSED_CODE) {
+        roomClosed();
+        return;
+      }
+      if (nextPollMs !== 0) setTimeout(connectSocket, SOCKET_RETRY_MS);
+    });
+  }
+
+  // Sin SSE (navegador o red que no lo permiten): peticion larga que el servidor
+  // solo responde cuando cambia la version de la sala o tras 25 s
+  const LONG_POLL_RETRY_MS = 2000;
+  let longPolling = false;
+
+  function sleep(ms) {
+    return new Promise((resolve) => setTimeout(resolve, ms));
+  }
+
+  async function longPoll() {
+    if (longPolling) return;
+    longPolling = true;
+    try {
+      while (!eventsOpen && !socketOpen && nextPollMs !== 0) {
+        if (lastVersion == null) {
+          await sleep(LONG_POLL_RETRY_MS);
+          continue;
+        }
+        const started = Date.now();
+        try {
+          const res = await fetch(`/rooms/${roomId}/status/wait?since=${lastVersion}`, {
+            credentials: "same-origin",
+            cache: "no-store",
+          });
+          if (res.status === 200) {
+            await refresh();
+            continue;
+          }
+        } catch (e) {
+          console.error("Error en espera del lobby", e);
+        }
+        // respuesta inmediata sin cambios (sala sin runtime) o error: no insistir en bucle
+        if (Date.now() - started < LONG_POLL_RETRY_MS) await sleep(LONG_POLL_RETRY_MS);
+      }
+    } finally {
+      longPolling = false;
+    }
+  }
+
+  function connectEvents() {
+    if (!window.EventSource) {
+      longPoll();
+      return;
+    }
+    const source = new EventSource(`/rooms/${roomId}/events`);
+    source.addEventListener("open", () => {
+      eventsOpen = true;
+    });
+    // con el WebSocket abierto los mismos cambios llegan como tramas
+    source.addEventListener("state", (ev) => {
+      let type = null;
+      try {
+        type = JSON.parse(ev.data).type;
+      } catch (e) {
+        type = null;
+      }
+      if (type === "closed") {
+        source.close();
+        roomClosed();
+        return;
+      }
+      if (!socketOpen) refresh();
+    });
+    source.addEventListener("update", () => {
+      if (!socketOpen) refresh();
+    });
+    source.addEventListener("error", () => {
+      eventsOpen = false;
+      longPoll();
+    });
+  }
+
+  // con SSE abierto o una peticion larga en curso los cambios llegan solos:
+  // el sondeo nunca baja del intervalo de respaldo
+  function pollDelay() {
+    const hint = nextPollMs != null ? nextPollMs : POLL_MS;
+    const base = eventsOpen || socketOpen || (longPolling && lastVersion != null) ? Math.max(hint, POLL_WITH_EVENTS_MS) : hint;
+    // desfase aleatorio para que los clientes no coincidan justo tras un plazo
+    return base + Math.floor(Math.random() * POLL_JITTER_MS);
+  }
+
+  function schedulePoll() {
+    if (nextPollMs === 0) return;
+    setTimeout(async () => {
+      await refresh();
+      schedulePoll();
+    }, pollDelay());
+  }
+
+  connectEvents();
+  connectSocket();
+  refresh();
+  schedulePoll();
+  setInterval(() => {
+    updateQuestionTimer();
+    updateCountdown();
+  }, 250);
 })();
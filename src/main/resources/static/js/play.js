@@ -26,6 +26,11 @@
   const resultSecondsRow = document.getElementById("result-seconds-row");
   let questionEndsAt = null;
   let questionSecondsFallback = null;
+  let resultEndsAt = null;
+  let statusEtag = null;
+  // cada cuanto volver a consultar segun el servidor; 0 = sala terminada
+  let nextPollMs = null;
+  let questionId = root.dataset.questionId || null;
   let clockOffset = 0;
 
   function nowMs() {
@@ -42,6 +47,18 @@
     return null;
   }
 
+  function renderResultSeconds() {
+    if (!resultSecondsRow) return;
+    if (resultEndsAt == null) {
+      resultSecondsRow.classList.add("hidden");
+      return;
+    }
+    resultSecondsRow.classList.remove("hidden");
+    if (resultSeconds) {
+      resultSeconds.textContent = Math.max(0, Math.ceil((resultEndsAt - nowMs()) / 1000));
+    }
+  }
+
   function setStateSections(state, phase) {
     if (waitingEl) waitingEl.style.display = state === "WAITING" ? "block" : "none";
     if (runningEl) runningEl.style.display = state === "RUNNING" && phase === "QUESTION" ? "block" : "none";
@@ -58,6 +75,60 @@
     if (optD) optD.textContent = q.optionD || "";
   }
 
+  // el texto de cada pregunta se descarga una vez; el navegador lo guarda en cache
+  async function fetchQuestion(id) {
+    try {
+      const res = await fetch(`/play/${pin}/question/${id}`);
+      if (!res.ok) return null;
+      return await res.json();
+    } catch (e) {
+      console.error("Error cargando pregunta", e);
+      return null;
+    }
+  }
+
+  async function loadQuestion(id) {
+    if (id == null || String(id) === String(questionId)) return;
+    const q = await fetchQuestion(id);
+    if (!q) return;
+    renderQuestion(q);
+    questionId = String(id);
+  }
+
+  // Siguiente pregunta descargada durante RESULTS: se muestra en revealAt (hora del servidor),
+  // a la vez en todos los clientes y sin esperar al siguiente sondeo
+  let upcoming = null;
+  let revealedLocally = false;
+
+  async function prefetchQuestion(data) {
+    if (data.nextQuestionId == null || data.revealAt == null) {
+      upcoming = null;
+      return;
+    }
+    const id = String(data.nextQuestionId);
+    if (upcoming && upcoming.id === id) return;
+    upcoming = { id, revealAt: data.revealAt, endsAt: data.nextQuestionEndsAt, question: null };
+    const target = upcoming;
+    target.question = await fetchQuestion(id);
+  }
+
+  function revealUpcoming() {
+    if (!upcoming || !upcoming.question || nowMs() < upcoming.revealAt) return;
+    renderQuestion(upcoming.question);
+    questionId = upcoming.id;
+    questionEndsAt = upcoming.endsAt != null ? upcoming.endsAt : null;
+    questionSecondsFallback = null;
+    resultEndsAt = null;
+    upcoming = null;
+    revealedLocally = true;
+    setStateSections("RUNNING", "QUESTION");
+    if (answeredEl) answeredEl.style.display = "none";
+    if (timeoutEl) timeoutEl.style.display = "none";
+    if (answerForm) answerForm.style.display = "block";
+    const secondsLeft = currentSecondsLeft();
+    if (timeEl && secondsLeft != null) timeEl.textContent = secondsLeft;
+  }
+
   function stateLabel(state) {
     if (state === "WAITING") return "ESPERANDO";
     if (state === "RUNNING") return "EN JUEGO";
@@ -67,13 +138,22 @@
 
   async function poll() {
     try {
-      const res = await fetch(`/play/${pin}/status`);
+      const res = await fetch(`/play/${pin}/status`, {
+        cache: "no-store",
+        headers: statusEtag ? { "If-None-Match": statusEtag } : {},
+      });
+      // 304: nada ha cambiado desde el ultimo estado pintado
+      if (res.status === 304) return;
       if (res.status === 401 || res.status === 403) {
         window.location.href = "/join";
         return;
       }
       if (!res.ok) return;
       const data = await res.json();
+      statusEtag = res.headers.get("ETag");
+      if (data.nextPollMs != null) nextPollMs = data.nextPollMs;
+      // respuesta anterior al cambio que ya se ha mostrado en local
+      if (revealedLocally && data.phase === "RESULTS" && String(data.nextQuestionId) === String(questionId)) return;
 
       if (stateEl) stateEl.textContent = stateLabel(data.state);
       setStateSections(data.state, data.phase);
@@ -95,6 +175,8 @@
 
       if (data.state === "RUNNING") {
         if (data.phase === "QUESTION") {
+          resultEndsAt = null;
+          upcoming = null;
           if (data.questionEndsAt != null) {
             questionEndsAt = data.questionEndsAt;
             questionSecondsFallback = null;
@@ -104,7 +186,7 @@
           }
           const secondsLeft = currentSecondsLeft();
           if (timeEl && secondsLeft != null) timeEl.textContent = secondsLeft;
-          renderQuestion(data.question);
+          await loadQuestion(data.questionId);
           const answered = !!data.alreadyAnswered;
           const timeUp = secondsLeft != null && secondsLeft <= 0;
           if (answeredEl) answeredEl.style.display = answered ? "block" : "none";
@@ -115,7 +197,10 @@
           questionEndsAt = null;
           questionSecondsFallback = null;
           if (resultStatement && data.statement != null) resultStatement.textContent = data.statement;
-          if (resultSecondsRow) resultSecondsRow.classList.add("hidden");
+          // plazo absoluto del servidor, solo en modo AUTO
+          resultEndsAt = data.resultEndsAt != null ? data.resultEndsAt : null;
+          renderResultSeconds();
+          await prefetchQuestion(data);
           const correct = !!data.correct;
           if (resultBanner) {
             resultBanner.classList.remove("bg-green-600", "bg-red-600");
@@ -135,9 +220,60 @@
     }
   }
 
+  // Con SSE el servidor avisa en cada cambio de fase; el sondeo queda como respaldo
+  const POLL_MS = 500;
+  const POLL_WITH_EVENTS_MS = 5000;
+  const POLL_JITTER_MS = 200;
+  let eventsOpen = false;
+
+  function connectEvents() {
+    if (!window.EventSource) return;
+    const source = new EventSource(`/play/${pin}/events`);
+    source.addEventListener("open", () => {
+      eventsOpen = true;
+    });
+    source.addEventListener("state", (ev) => {
+      // la pregunta ya se mostro en revealAt: el sondeo de respaldo confirmara el estado,
+      // sin que todos los jugadores pidan a la vez
+      let type = null;
+      try {
+        type = JSON.parse(ev.data).type;
+      } catch (e) {
+        type = null;
+      }
+      if (type === "question" && revealedLocally) {
+        revealedLocally = false;
+        return;
+      }
+      poll();
+    });
+    source.addEventListener("error", () => {
+      eventsOpen = false;
+    });
+  }
+
+  // con SSE abierto los avisos llegan solos: el sondeo nunca baja del intervalo de respaldo
+  function pollDelay() {
+    const hint = nextPollMs != null ? nextPollMs : POLL_MS;
+    const base = eventsOpen ? Math.max(hint, POLL_WITH_EVENTS_MS) : hint;
+    // desfase aleatorio para que los clientes no coincidan justo tras un plazo
+    return base + Math.floor(Math.random() * POLL_JITTER_MS);
+  }
+
+  function schedulePoll() {
+    if (nextPollMs === 0) return;
+    setTimeout(async () => {
+      await poll();
+      schedulePoll();
+    }, pollDelay());
+  }
+
+  connectEvents();
   poll();
-  setInterval(poll, 500);
+  schedulePoll();
   setInterval(() => {
+    revealUpcoming();
+    if (resultEl && resultEl.style.display !== "none") renderResultSeconds();
     if (!runningEl || runningEl.style.display === "none") return;
     const secondsLeft = currentSecondsLeft();
     if (timeEl && secondsLeft != null) timeEl.textContent = secondsLeft;
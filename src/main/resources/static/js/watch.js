@@ -0,0 +1,118 @@
+(() => {
+  const root = document.body;
+  const pin = root.dataset.pin;
+  if (!pin || !window.EventSource) return;
+
+  const stateEl = document.getElementById("watch-state");
+  const waitingEl = document.getElementById("watch-waiting");
+  const playersEl = document.getElementById("watch-players");
+  const questionSection = document.getElementById("watch-question-section");
+  const indexEl = document.getElementById("watch-index");
+  const countEl = document.getElementById("watch-count");
+  const answeredEl = document.getElementById("watch-answered");
+  const secondsEl = document.getElementById("watch-seconds");
+  const statementEl = document.getElementById("watch-statement");
+  const options = {
+    A: document.getElementById("watch-opt-a"),
+    B: document.getElementById("watch-opt-b"),
+    C: document.getElementById("watch-opt-c"),
+    D: document.getElementById("watch-opt-d"),
+  };
+  const correctEl = document.getElementById("watch-correct");
+  const correctOptionEl = document.getElementById("watch-correct-option");
+  const finishedEl = document.getElementById("watch-finished");
+  const rankingSection = document.getElementById("watch-ranking-section");
+  const rankingBody = document.getElementById("watch-ranking");
+  let endsAt = null;
+  let clockOffset = 0;
+
+  function nowMs() {
+    return Date.now() + clockOffset;
+  }
+
+  function stateLabel(state) {
+    if (state === "WAITING") return "ESPERANDO";
+    if (state === "RUNNING") return "EN JUEGO";
+    if (state === "FINISHED") return "FINALIZADA";
+    if (state === "CLOSED") return "CERRADA";
+    return state || "";
+  }
+
+  function show(el, visible) {
+    if (el) el.classList.toggle("hidden", !visible);
+  }
+
+  function renderSeconds() {
+    if (!secondsEl) return;
+    secondsEl.textContent = endsAt == null ? "--" : Math.max(0, Math.ceil((endsAt - nowMs()) / 1000));
+  }
+
+  function renderRanking(ranking) {
+    if (!rankingBody) return;
+    rankingBody.innerHTML = "";
+    (ranking || []).forEach((p) => {
+      const tr = document.createElement("tr");
+      const tdName = document.createElement("td");
+      const tdScore = document.createElement("td");
+      tdName.textContent = p.name;
+      tdScore.textContent = p.score;
+      tdScore.className = "text-right";
+      tr.appendChild(tdName);
+      tr.appendChild(tdScore);
+      rankingBody.appendChild(tr);
+    });
+  }
+
+  // Instantanea completa de la sala: la misma para todos los espectadores
+  function render(data) {
+    if (data.serverNow != null) clockOffset = data.serverNow - Date.now();
+    if (stateEl) stateEl.textContent = stateLabel(data.state);
+    if (playersEl && data.players != null) playersEl.textContent = data.players;
+
+    const running = data.state === "RUNNING" && data.question;
+    show(waitingEl, data.state === "WAITING");
+    show(questionSection, running);
+    show(finishedEl, data.state === "FINISHED");
+    show(rankingSection, data.state !== "WAITING" && data.state !== "CLOSED");
+    renderRanking(data.ranking);
+
+    if (running) {
+      const q = data.question;
+      if (indexEl) indexEl.textContent = data.questionIndex;
+      if (countEl) countEl.textContent = data.questionCount;
+      if (answeredEl) answeredEl.textContent = data.answered || 0;
+      if (statementEl) statementEl.textContent = q.statement || "";
+      // en QUESTION llegan las opciones; en RESULTS, la correcta
+      if (data.phase === "QUESTION") {
+        Object.keys(options).forEach((k) => {
+          if (options[k]) options[k].textContent = q["option" + k] || "";
+        });
+      }
+      show(correctEl, data.phase === "RESULTS");
+      if (correctOptionEl) correctOptionEl.textContent = q.correctOption || "";
+      Object.keys(options).forEach((k) => {
+        if (!options[k]) return;
+        const dim = data.phase === "RESULTS" && k !== q.correctOption;
+        options[k].classList.toggle("opacity-40", dim);
+      });
+      endsAt = data.phase === "QUESTION" ? data.questionEndsAt : data.resultEndsAt;
+      if (endsAt === undefined) endsAt = null;
+    } else {
+      endsAt = null;
+    }
+    renderSeconds();
+  }
+
+  const source = new EventSource(`/watch/${pin}/stream`);
+  source.addEventListener("snapshot", (ev) => {
+    try {
+      const data = JSON.parse(ev.data);
+      render(data);
+      if (data.state === "FINISHED" || data.state === "CLOSED") source.close();
+    } catch (e) {
+      console.error("Error actualizando vista", e);
+    }
+  });
+
+  setInterval(renderSeconds, 250);
+})();
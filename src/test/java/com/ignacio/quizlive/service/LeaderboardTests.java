@@ -0,0 +1,121 @@
+package com.ignacio.quizlive.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LeaderboardTests {
+
+    private static List<Long> ids(List<Leaderboard.Entry> entries) {
+        return entries.stream().map(Leaderboard.Entry::getPlayerId).toList();
+    }
+
+    @Test
+    void emptyBoard() {
+        Leaderboard board = new Leaderboard();
+
+        assertEquals(0, board.size());
+        assertEquals(0, board.rank(1L));
+        assertEquals(0, board.score(1L));
+        assertTrue(board.top(5).isEmpty());
+        assertTrue(board.all().isEmpty());
+    }
+
+    @Test
+    void rankFollowsScoreUpdates() {
+        Leaderboard board = new Leaderboard();
+        board.put(1L, "ana", 0);
+        board.put(2L, "bea", 0);
+        board.put(3L, "carlos", 0);
+
+        board.addScore(3L, 2);
+        board.addScore(2L, 1);
+
+        assertEquals(1, board.rank(3L));
+        assertEquals(2, board.rank(2L));
+        assertEquals(3, board.rank(1L));
+        assertEquals(2, board.score(3L));
+
+        board.addScore(1L, 3);
+
+        assertEquals(1, board.rank(1L));
+        assertEquals(2, board.rank(3L));
+        assertEquals(3, board.rank(2L));
+        assertEquals(3, board.size());
+    }
+
+    @Test
+    void addScoreIgnoresUnknownPlayer() {
+        Leaderboard board = new Leaderboard();
+        board.put(1L, "ana", 1);
+
+        board.addScore(99L, 5);
+
+        assertEquals(1, board.size());
+        assertEquals(0, board.rank(99L));
+    }
+
+    @Test
+    void topReturnsTheFirstKInOrder() {
+        Leaderboard board = new Leaderboard();
+        for (long id = 1; id <= 20; id++) {
+            board.put(id, "p" + id, (int) id);
+        }
+
+        assertEquals(List.of(20L, 19L, 18L), ids(board.top(3)));
+        assertEquals(20, board.top(50).size());
+        assertEquals(ids(board.all()).subList(0, 5), ids(board.top(5)));
+        assertTrue(board.top(0).isEmpty());
+    }
+
+    @Test
+    void tiesBreakByNameIgnoringCaseThenById() {
+        Leaderboard board = new Leaderboard();
+        board.put(4L, "bea", 5);
+        board.put(3L, "Ana", 5);
+        board.put(2L, "ana", 5);
+        board.put(1L, "Carlos", 7);
+
+        assertEquals(List.of(1L, 2L, 3L, 4L), ids(board.all()));
+        assertEquals(2, board.rank(2L));
+        assertEquals(3, board.rank(3L));
+        assertEquals(4, board.rank(4L));
+    }
+
+    @Test
+    void removeAndAddAgain() {
+        Leaderboard board = new Leaderboard();
+        board.put(1L, "ana", 3);
+        board.put(2L, "bea", 2);
+        board.put(3L, "carlos", 1);
+
+        board.remove(1L);
+
+        assertEquals(2, board.size());
+        assertEquals(0, board.rank(1L));
+        assertEquals(1, board.rank(2L));
+        assertEquals(List.of(2L, 3L), ids(board.all()));
+
+        board.put(1L, "ana", 0);
+
+        assertEquals(3, board.size());
+        assertEquals(3, board.rank(1L));
+        assertEquals(0, board.score(1L));
+        assertEquals(List.of(2L, 3L, 1L), ids(board.all()));
+    }
+
+    @Test
+    void putReplacesTheExistingEntry() {
+        Leaderboard board = new Leaderboard();
+        board.put(1L, "ana", 1);
+        board.put(2L, "bea", 2);
+
+        board.put(1L, "ana", 5);
+
+        assertEquals(2, board.size());
+        assertEquals(List.of(1L, 2L), ids(board.all()));
+    }
+}
@@ -0,0 +1,94 @@
+package com.ignacio.quizlive.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PendingAnswersTests {
+
+    // AnswerBatchWriter sin BD: falla las primeras veces y guarda cada lote que recibe
+    private static final class StubWriter extends AnswerBatchWriter {
+        int failures;
+        final List<List<Long>> answerBatches = new ArrayList<>();
+        final List<Map<Long, Integer>> scoreBatches = new ArrayList<>();
+
+        StubWriter(int failures) {
+            super(null);
+            this.failures = failures;
+        }
+
+        @Override
+        public void write(List<PendingAnswer> answers, Map<Long, Integer> deltas) {
+            answerBatches.add(answers.stream().map(a -> a.playerId).toList());
+            scoreBatches.add(Map.copyOf(deltas));
+            if (failures > 0) {
+                failures--;
+                throw new RuntimeException("BD caida");
+            }
+        }
+    }
+
+    private static AnswerBatchWriter.PendingAnswer answer(long playerId) {
+        return new AnswerBatchWriter.PendingAnswer(playerId, 10L, "A", true);
+    }
+
+    @Test
+    void emptyQueueDoesNotCallTheWriter() {
+        PendingAnswers pending = new PendingAnswers("123456");
+        StubWriter writer = new StubWriter(0);
+
+        assertEquals(PendingAnswers.FlushResult.EMPTY, pending.flush(writer));
+        assertTrue(writer.answerBatches.isEmpty());
+    }
+
+    @Test
+    void failedBatchIsRequeuedAheadOfNewAnswers() {
+        PendingAnswers pending = new PendingAnswers("123456");
+        StubWriter writer = new StubWriter(1);
+        pending.add(answer(1L));
+        pending.add(answer(2L));
+        pending.addScore(1L, 1);
+
+        assertEquals(PendingAnswers.FlushResult.RETRY, pending.flush(writer));
+        assertTrue(pending.hasFailedBatch());
+        assertEquals(0, pending.size());
+
+        pending.add(answer(3L));
+        pending.addScore(1L, 1);
+        pending.addScore(3L, 1);
+
+        assertEquals(PendingAnswers.FlushResult.WRITTEN, pending.flush(writer));
+        assertFalse(pending.hasFailedBatch());
+        assertEquals(List.of(1L, 2L, 3L), writer.answerBatches.get(1));
+        assertEquals(Map.of(1L, 2, 3L, 1), writer.scoreBatches.get(1));
+
+        assertEquals(PendingAnswers.FlushResult.EMPTY, pending.flush(writer));
+    }
+
+    @Test
+    void batchIsDroppedAfterMaxAttempts() {
+        PendingAnswers pending = new PendingAnswers("123456");
+        StubWriter writer = new StubWriter(Integer.MAX_VALUE);
+        pending.add(answer(1L));
+
+        for (int i = 1; i < PendingAnswers.MAX_ATTEMPTS; i++) {
+            assertEquals(PendingAnswers.FlushResult.RETRY, pending.flush(writer));
+        }
+        assertEquals(PendingAnswers.FlushResult.DROPPED, pending.flush(writer));
+        assertFalse(pending.hasFailedBatch());
+        assertEquals(PendingAnswers.MAX_ATTEMPTS, writer.answerBatches.size());
+
+        // el contador de intentos vuelve a empezar con el siguiente lote
+        writer.failures = 1;
+        pending.add(answer(2L));
+        assertEquals(PendingAnswers.FlushResult.RETRY, pending.flush(writer));
+        assertEquals(PendingAnswers.FlushResult.WRITTEN, pending.flush(writer));
+        assertEquals(List.of(2L), writer.answerBatches.get(writer.answerBatches.size() - 1));
+    }
+}
@@ -0,0 +1,104 @@
+package com.ignacio.quizlive.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RoomChangeLogTests {
+
+    @Test
+    void changedSinceReturnsThePlayersChangedAfterTheVersion() {
+        RoomChangeLog log = new RoomChangeLog();
+        long start = log.version();
+
+        log.playerChanged(1L);
+        log.playerChanged(2L);
+        log.playerChanged(1L);
+
+        assertEquals(start + 3, log.version());
+        assertEquals(Set.of(1L, 2L), log.changedSince(start));
+        assertEquals(Set.of(1L), log.changedSince(start + 2));
+        assertTrue(log.changedSince(log.version()).isEmpty());
+    }
+
+    @Test
+    void versionFromTheFutureNeedsFullState() {
+        RoomChangeLog log = new RoomChangeLog();
+        log.playerChanged(1L);
+
+        assertNull(log.changedSince(log.version() + 1));
+    }
+
+    @Test
+    void gapLargerThanTheBufferNeedsFullState() {
+        RoomChangeLog log = new RoomChangeLog();
+        long start = log.version();
+
+        for (long id = 1; id <= RoomChangeLog.CAPACITY + 1; id++) {
+            log.playerChanged(id);
+        }
+
+        assertNull(log.changedSince(start));
+        // lo que aun cabe en el buffer se sigue sirviendo como delta
+        long recent = log.version() - RoomChangeLog.CAPACITY;
+        assertEquals(RoomChangeLog.CAPACITY, log.changedSince(recent).size());
+    }
+
+    @Test
+    void resyncForcesFullStateOnlyForVersionsBeforeIt() {
+        RoomChangeLog log = new RoomChangeLog();
+        long start = log.version();
+
+        log.playerChanged(1L);
+        log.resync();
+        long afterResync = log.version();
+        log.playerChanged(2L);
+
+        assertNull(log.changedSince(start));
+        assertNull(log.changedSince(start + 1));
+        assertEquals(Set.of(2L), log.changedSince(afterResync));
+    }
+
+    @Test
+    void awaitWakesOnTheNextChange() {
+        RoomChangeLog log = new RoomChangeLog();
+        AtomicInteger woken = new AtomicInteger();
+
+        log.await(log.version(), woken::incrementAndGet);
+        assertEquals(0, woken.get());
+
+        log.playerChanged(1L);
+        log.playerChanged(2L);
+        assertEquals(1, woken.get());
+    }
+
+    @Test
+    void awaitWakesAtOnceWhenAlreadyBehind() {
+        RoomChangeLog log = new RoomChangeLog();
+        long start = log.version();
+        log.playerChanged(1L);
+        AtomicInteger woken = new AtomicInteger();
+
+        log.await(start, woken::incrementAndGet);
+
+        assertEquals(1, woken.get());
+    }
+
+    @Test
+    void cancelledWaiterIsNotWoken() {
+        RoomChangeLog log = new RoomChangeLog();
+        AtomicInteger woken = new AtomicInteger();
+        Runnable wake = woken::incrementAndGet;
+
+        log.await(log.version(), wake);
+        log.cancel(wake);
+        log.resync();
+
+        assertEquals(0, woken.get());
+    }
+}
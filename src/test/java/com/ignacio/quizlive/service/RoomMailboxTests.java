@@ -0,0 +1,151 @@
+package com.ignacio.quizlive.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RoomMailboxTests {
+
+    // Executor que solo encola: cada test decide cuando corre cada turno
+    private static final class ManualExecutor implements Executor {
+        final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        void runNext() {
+            tasks.remove().run();
+        }
+    }
+
+    @Test
+    void ordersRunOneAtATimeInArrivalOrder() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            RoomMailbox mailbox = new RoomMailbox("123456", pool);
+            List<Integer> seen = Collections.synchronizedList(new ArrayList<>());
+            AtomicInteger running = new AtomicInteger();
+            AtomicInteger overlaps = new AtomicInteger();
+
+            CompletableFuture<Void> last = null;
+            for (int i = 0; i < 1000; i++) {
+                int n = i;
+                last = mailbox.submit(() -> {
+                    if (running.incrementAndGet() > 1) overlaps.incrementAndGet();
+                    seen.add(n);
+                    running.decrementAndGet();
+                });
+            }
+            last.get(5, TimeUnit.SECONDS);
+
+            assertEquals(0, overlaps.get());
+            assertEquals(1000, seen.size());
+            for (int i = 0; i < 1000; i++) {
+                assertEquals(i, seen.get(i));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void drainsAtMostMaxBatchPerTurnAndReschedules() {
+        ManualExecutor executor = new ManualExecutor();
+        RoomMailbox mailbox = new RoomMailbox("123456", executor);
+        AtomicInteger done = new AtomicInteger();
+        int total = RoomMailbox.MAX_BATCH * 2 + 10;
+
+        for (int i = 0; i < total; i++) {
+            mailbox.execute(done::incrementAndGet);
+        }
+        assertEquals(1, executor.tasks.size());
+
+        executor.runNext();
+        assertEquals(RoomMailbox.MAX_BATCH, done.get());
+        assertEquals(1, executor.tasks.size());
+
+        executor.runNext();
+        assertEquals(RoomMailbox.MAX_BATCH * 2, done.get());
+        assertEquals(1, executor.tasks.size());
+
+        executor.runNext();
+        assertEquals(total, done.get());
+        assertTrue(executor.tasks.isEmpty());
+    }
+
+    @Test
+    void newOrderAfterAnEmptyTurnIsScheduledAgain() {
+        ManualExecutor executor = new ManualExecutor();
+        RoomMailbox mailbox = new RoomMailbox("123456", executor);
+        AtomicInteger done = new AtomicInteger();
+
+        mailbox.execute(done::incrementAndGet);
+        executor.runNext();
+        assertTrue(executor.tasks.isEmpty());
+
+        mailbox.execute(done::incrementAndGet);
+        assertEquals(1, executor.tasks.size());
+        executor.runNext();
+        assertEquals(2, done.get());
+    }
+
+    @Test
+    void failingOrderDoesNotStopTheLoop() {
+        ManualExecutor executor = new ManualExecutor();
+        RoomMailbox mailbox = new RoomMailbox("123456", executor);
+        AtomicInteger done = new AtomicInteger();
+
+        CompletableFuture<Void> failed = mailbox.submit(() -> {
+            throw new RuntimeException("fallo");
+        });
+        mailbox.execute(() -> {
+            throw new IllegalStateException("fallo sin future");
+        });
+        CompletableFuture<Void> next = mailbox.submit(done::incrementAndGet);
+        executor.runNext();
+
+        CompletionException ex = assertThrows(CompletionException.class, failed::join);
+        assertEquals("fallo", ex.getCause().getMessage());
+        next.join();
+        assertEquals(1, done.get());
+        assertTrue(executor.tasks.isEmpty());
+    }
+
+    @Test
+    void errorCompletesTheFutureAndTheLoopGoesOn() {
+        ManualExecutor executor = new ManualExecutor();
+        RoomMailbox mailbox = new RoomMailbox("123456", executor);
+        AtomicInteger done = new AtomicInteger();
+
+        CompletableFuture<Void> failed = mailbox.submit(() -> {
+            throw new AssertionError("error");
+        });
+        mailbox.execute(() -> {
+            throw new AssertionError("error sin future");
+        });
+        mailbox.execute(done::incrementAndGet);
+        executor.runNext();
+
+        CompletionException ex = assertThrows(CompletionException.class, failed::join);
+        assertInstanceOf(AssertionError.class, ex.getCause());
+        assertEquals(1, done.get());
+    }
+}
@@ -0,0 +1,80 @@
+package com.ignacio.quizlive.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// 10.000 salas con su temporizador de pregunta: hilos usados y precision de los vencimientos.
+// Mide tiempos reales, asi que no entra en el mvn test normal: mvn test -Pbenchmark
+@Tag("benchmark")
+class RoomTimerServiceBenchmarkTests {
+
+    private static final int ROOMS = 10_000;
+    private static final Logger logger = LoggerFactory.getLogger(RoomTimerServiceBenchmarkTests.class);
+
+    private final RoomTimerService timers = new RoomTimerService();
+
+    @AfterEach
+    void tearDown() {
+        timers.shutdown();
+    }
+
+    @Test
+    void tenThousandRoomsShareAFewThreads() throws Exception {
+        int threadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+
+        long[] lateMs = new long[ROOMS];
+        Arrays.fill(lateMs, -1);
+        CountDownLatch fired = new CountDownLatch(ROOMS / 2);
+        AtomicInteger cancelledRan = new AtomicInteger();
+        ScheduledFuture<?>[] tasks = new ScheduledFuture<?>[ROOMS];
+
+        for (int i = 0; i < ROOMS; i++) {
+            int room = i;
+            long delayMs = 500 + ThreadLocalRandom.current().nextLong(1000);
+            long due = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMs);
+            tasks[i] = timers.schedule(() -> {
+                if (room % 2 == 1) {
+                    cancelledRan.incrementAndGet();
+                    return;
+                }
+                lateMs[room] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - due);
+                fired.countDown();
+            }, delayMs, TimeUnit.MILLISECONDS);
+        }
+        // la mitad de las salas responden todos antes de tiempo: equivalente a cancelTimers()
+        for (int i = 1; i < ROOMS; i += 2) {
+            tasks[i].cancel(false);
+        }
+
+        int threadsDuring = ManagementFactory.getThreadMXBean().getThreadCount();
+        assertTrue(fired.await(10, TimeUnit.SECONDS), "no vencieron todos los temporizadores");
+        int threadsAfter = ManagementFactory.getThreadMXBean().getThreadCount();
+
+        long[] late = Arrays.stream(lateMs).filter(v -> v >= 0).sorted().toArray();
+        long p50 = late.length == 0 ? 0 : late[late.length / 2];
+        long p99 = late.length == 0 ? 0 : late[(int) (late.length * 0.99)];
+        long max = late.length == 0 ? 0 : late[late.length - 1];
+        logger.info("[Benchmark] salas={} hilos antes={} programados={} tras vencer={} retraso p50={}ms p99={}ms max={}ms",
+                ROOMS, threadsBefore, threadsDuring, threadsAfter, p50, p99, max);
+
+        assertEquals(0, cancelledRan.get());
+        assertEquals(0, timers.pendingTimers());
+        assertTrue(Math.max(threadsDuring, threadsAfter) - threadsBefore <= 8,
+                "demasiados hilos: " + (Math.max(threadsDuring, threadsAfter) - threadsBefore));
+        assertTrue(p99 < 250, "retraso p99 demasiado alto: " + p99 + "ms");
+    }
+}